@@ -0,0 +1,166 @@
+package com.sfprod.jwadutil;
+
+import static com.sfprod.utils.HashUtils.hash64;
+import static com.sfprod.utils.StringUtils.toByteArray;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.URISyntaxException;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Records the inputs of the WAD file of every game in
+ * target/build-manifest.properties, so a game can be skipped when none of its
+ * inputs have changed since its WAD file was created.
+ *
+ * The inputs of a game are the resources it has used, the classes of jWadUtil
+ * and the node builder.
+ */
+final class BuildManifest {
+
+	private static final String FILE_NAME = "build-manifest.properties";
+
+	private static final String RESOURCES = ".resources";
+	private static final String FINGERPRINT = ".fingerprint";
+	private static final String OUTPUT = ".output";
+
+	private final Path directory;
+	private final Properties properties = new Properties();
+	private final Map<String, String> resourceHashes = new ConcurrentHashMap<>();
+	private final String classesHash;
+
+	BuildManifest() {
+		this(Path.of("target"));
+	}
+
+	/**
+	 * @param directory the directory with the WAD files and the manifest
+	 */
+	BuildManifest(Path directory) {
+		this.directory = directory;
+
+		Path path = directory.resolve(FILE_NAME);
+		if (Files.exists(path)) {
+			try (Reader reader = Files.newBufferedReader(path)) {
+				properties.load(reader);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		this.classesHash = hashClasses();
+	}
+
+	/**
+	 * @param game
+	 * @return true if the WAD file of the game exists and its inputs haven't
+	 *         changed since it was created
+	 */
+	boolean isUpToDate(Game game) {
+		String resources = properties.getProperty(game + RESOURCES);
+		String fingerprint = properties.getProperty(game + FINGERPRINT);
+		String output = properties.getProperty(game + OUTPUT);
+		Path outputPath = directory.resolve(game.getWadFile());
+		if (resources == null || fingerprint == null || output == null || !Files.exists(outputPath)) {
+			return false;
+		}
+
+		List<String> resourceNames = resources.isEmpty() ? List.of() : Arrays.asList(resources.split(";"));
+		return fingerprint.equals(fingerprint(resourceNames)) && output.equals(hashFile(outputPath));
+	}
+
+	/**
+	 * Record the inputs of the WAD file the game has just created
+	 *
+	 * @param game
+	 * @param resourceNames
+	 */
+	void update(Game game, Set<String> resourceNames) {
+		List<String> sortedResourceNames = resourceNames.stream().sorted().toList();
+		properties.setProperty(game + RESOURCES, String.join(";", sortedResourceNames));
+		properties.setProperty(game + FINGERPRINT, fingerprint(sortedResourceNames));
+		properties.setProperty(game + OUTPUT, hashFile(directory.resolve(game.getWadFile())));
+	}
+
+	void save() {
+		try (Writer writer = Files.newBufferedWriter(directory.resolve(FILE_NAME))) {
+			properties.store(writer, "Inputs of the WAD files in this directory");
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private String fingerprint(List<String> resourceNames) {
+		StringBuilder inputs = new StringBuilder(classesHash).append(';').append(WadFile.getNodeBuilder());
+		for (String resourceName : resourceNames) {
+			inputs.append(';').append(resourceName).append('=')
+					.append(resourceHashes.computeIfAbsent(resourceName, BuildManifest::hashResource));
+		}
+		return toHexString(hash64(toByteArray(inputs.toString())));
+	}
+
+	private static String hashResource(String resourceName) {
+		try (InputStream inputStream = BuildManifest.class.getResourceAsStream(resourceName)) {
+			return inputStream == null ? "missing" : toHexString(hash64(inputStream.readAllBytes()));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static String hashFile(Path path) {
+		try {
+			return toHexString(hash64(Files.readAllBytes(path)));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Hash the class files of jWadUtil, from the classes directory or the JAR
+	 * file
+	 */
+	private static String hashClasses() {
+		try {
+			Path location = Path.of(BuildManifest.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+			if (Files.isDirectory(location)) {
+				return hashClasses(location);
+			}
+
+			try (FileSystem fileSystem = FileSystems.newFileSystem(location)) {
+				return hashClasses(fileSystem.getPath("/"));
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} catch (URISyntaxException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static String hashClasses(Path root) throws IOException {
+		StringBuilder classes = new StringBuilder();
+		try (Stream<Path> paths = Files.walk(root)) {
+			for (Path path : paths.filter(p -> p.toString().endsWith(".class")).sorted().toList()) {
+				classes.append(root.relativize(path)).append('=').append(hashFile(path)).append(';');
+			}
+		}
+		return toHexString(hash64(toByteArray(classes.toString())));
+	}
+
+	private static String toHexString(long hash) {
+		return String.format("%016x", hash);
+	}
+
+}
@@ -0,0 +1,122 @@
+package com.sfprod.jwadutil;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+
+/**
+ * Finds the closest color in a palette, like a linear scan with
+ * {@link Color#calculateDistance(Color)} that keeps the first color with the
+ * smallest distance, but with a k-d tree over the palette.
+ */
+public final class ColorMatcher {
+
+	private final List<Color> colors;
+
+	/**
+	 * Indexes of the colors in k-d tree order, the median of every range is the
+	 * root of the subtree of that range
+	 */
+	private final int[] tree;
+
+	private final boolean[] removed;
+
+	public ColorMatcher(List<Color> colors) {
+		this(colors, c -> true);
+	}
+
+	/**
+	 * @param colors
+	 * @param filter only the colors that match the filter can be the closest color
+	 */
+	public ColorMatcher(List<Color> colors, Predicate<Color> filter) {
+		this.colors = List.copyOf(colors);
+		this.tree = IntStream.range(0, colors.size()).filter(i -> filter.test(colors.get(i))).toArray();
+		this.removed = new boolean[colors.size()];
+
+		build(0, tree.length, 0);
+	}
+
+	private void build(int from, int to, int axis) {
+		if (to - from <= 1) {
+			return;
+		}
+
+		int[] range = Arrays.stream(tree, from, to).boxed()
+				.sorted(Comparator.comparingInt(i -> component(colors.get(i), axis))).mapToInt(Integer::intValue)
+				.toArray();
+		System.arraycopy(range, 0, tree, from, range.length);
+
+		int median = (from + to) >>> 1;
+		build(from, median, (axis + 1) % 3);
+		build(median + 1, to, (axis + 1) % 3);
+	}
+
+	private static int component(Color color, int axis) {
+		return switch (axis) {
+		case 0 -> color.r();
+		case 1 -> color.g();
+		default -> color.b();
+		};
+	}
+
+	/**
+	 * @param color
+	 * @return the index of the closest color, the lowest index if more colors are
+	 *         equally close, or -1 if there are no colors left
+	 */
+	public int closestColor(Color color) {
+		Match match = new Match();
+		search(color, 0, tree.length, 0, match);
+		return match.index;
+	}
+
+	/**
+	 * The color can't be the closest color anymore
+	 *
+	 * @param index
+	 */
+	public void remove(int index) {
+		removed[index] = true;
+	}
+
+	private void search(Color color, int from, int to, int axis, Match match) {
+		if (from >= to) {
+			return;
+		}
+
+		int median = (from + to) >>> 1;
+		int index = tree[median];
+		Color medianColor = colors.get(index);
+		if (!removed[index]) {
+			int distance = color.calculateDistance(medianColor);
+			if (distance < match.distance || (distance == match.distance && index < match.index)) {
+				match.distance = distance;
+				match.index = index;
+			}
+		}
+
+		int planeDistance = component(color, axis) - component(medianColor, axis);
+		int nextAxis = (axis + 1) % 3;
+		// Colors with an equal component can be on either side of the median
+		if (planeDistance <= 0) {
+			search(color, from, median, nextAxis, match);
+			if (planeDistance * planeDistance <= match.distance) {
+				search(color, median + 1, to, nextAxis, match);
+			}
+		} else {
+			search(color, median + 1, to, nextAxis, match);
+			if (planeDistance * planeDistance <= match.distance) {
+				search(color, from, median, nextAxis, match);
+			}
+		}
+	}
+
+	private static final class Match {
+		private int distance = Integer.MAX_VALUE;
+		private int index = -1;
+	}
+
+}
@@ -0,0 +1,66 @@
+package com.sfprod.jwadutil;
+
+import static com.sfprod.utils.NumberUtils.toByte;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Replaces the 256 colors of a palette by random colors that look the same.
+ * For every color, the colors that look the same are kept in a table of bytes.
+ */
+final class ColorShuffler {
+
+	private final byte[][] table = new byte[256][];
+
+	private ColorShuffler(List<Color> colors) {
+		if (colors.size() != 256) {
+			throw new IllegalArgumentException("A color shuffler needs 256 colors, not " + colors.size());
+		}
+
+		for (int i = 0; i < 256; i++) {
+			byte[] sameColors = new byte[256];
+			int count = 0;
+			Color color = colors.get(i);
+			for (int j = 0; j < 256; j++) {
+				if (color.equals(colors.get(j))) {
+					sameColors[count] = toByte(j);
+					count++;
+				}
+			}
+
+			table[i] = Arrays.copyOf(sameColors, count);
+		}
+	}
+
+	/**
+	 * @param colors 256 colors
+	 * @return
+	 */
+	static ColorShuffler of(List<Color> colors) {
+		return new ColorShuffler(colors);
+	}
+
+	byte apply(byte color, Random random) {
+		byte[] sameColors = table[color & 0xff];
+		return sameColors[random.nextInt(sameColors.length)];
+	}
+
+	/**
+	 * Replace every color by a random color that looks the same, in place. One
+	 * random number is drawn for every color, in order.
+	 *
+	 * @param data
+	 * @param from   inclusive
+	 * @param to     exclusive
+	 * @param random
+	 */
+	void apply(byte[] data, int from, int to, Random random) {
+		for (int i = from; i < to; i++) {
+			byte[] sameColors = table[data[i] & 0xff];
+			data[i] = sameColors[random.nextInt(sameColors.length)];
+		}
+	}
+
+}
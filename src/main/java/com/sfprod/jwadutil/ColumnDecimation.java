@@ -0,0 +1,69 @@
+package com.sfprod.jwadutil;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * How many neighbouring columns of a sprite or a wall share the data of their
+ * first column: 1, 2, 4 or 8. Factors for lumps whose name starts with a
+ * prefix override the factor of their category, the longest prefix wins.
+ *
+ * @param sprites
+ * @param walls
+ * @param prefixes
+ */
+public record ColumnDecimation(int sprites, int walls, Map<String, Integer> prefixes) {
+
+	private static final Set<Integer> FACTORS = Set.of(1, 2, 4, 8);
+
+	/**
+	 * Repeat every other column of sprites and every fourth column of walls
+	 */
+	public static final ColumnDecimation DEFAULT = new ColumnDecimation(2, 4);
+
+	public ColumnDecimation {
+		checkFactor(sprites);
+		checkFactor(walls);
+		prefixes.values().forEach(ColumnDecimation::checkFactor);
+		prefixes = Map.copyOf(prefixes);
+	}
+
+	public ColumnDecimation(int sprites, int walls) {
+		this(sprites, walls, Map.of());
+	}
+
+	private static void checkFactor(int factor) {
+		if (!FACTORS.contains(factor)) {
+			throw new IllegalArgumentException("Column decimation factor " + factor + " is not 1, 2, 4 or 8");
+		}
+	}
+
+	/**
+	 * @param prefix
+	 * @param factor
+	 * @return a copy of this policy with a factor for the lumps whose name starts
+	 *         with the prefix
+	 */
+	public ColumnDecimation withPrefix(String prefix, int factor) {
+		Map<String, Integer> newPrefixes = new HashMap<>(prefixes);
+		newPrefixes.put(prefix, factor);
+		return new ColumnDecimation(sprites, walls, newPrefixes);
+	}
+
+	int spriteFactor(Lump lump) {
+		return factor(lump, sprites);
+	}
+
+	int wallFactor(Lump lump) {
+		return factor(lump, walls);
+	}
+
+	private int factor(Lump lump, int categoryFactor) {
+		String name = lump.nameAsString();
+		return prefixes.entrySet().stream().filter(e -> name.startsWith(e.getKey()))
+				.max(Map.Entry.comparingByKey((p1, p2) -> Integer.compare(p1.length(), p2.length())))
+				.map(Map.Entry::getValue).orElse(categoryFactor);
+	}
+
+}
@@ -0,0 +1,115 @@
+package com.sfprod.jwadutil;
+
+import java.util.Arrays;
+
+/**
+ * A dictionary from columns of graphics in picture format to their offsets in
+ * the output. A column is a slice of a byte array, it isn't copied or boxed.
+ * Columns are looked up by their hash and confirmed by comparing the bytes.
+ */
+final class ColumnDictionary {
+
+	private static final int ABSENT = -1;
+
+	private byte[][] arrays;
+	private int[] offsets;
+	private int[] lengths;
+	private int[] hashes;
+	private int[] values;
+	private int size;
+
+	/**
+	 * Indexes of the entries, open addressing with linear probing
+	 */
+	private int[] table;
+
+	ColumnDictionary(int expectedSize) {
+		int capacity = Math.max(expectedSize, 4);
+		this.arrays = new byte[capacity][];
+		this.offsets = new int[capacity];
+		this.lengths = new int[capacity];
+		this.hashes = new int[capacity];
+		this.values = new int[capacity];
+		this.table = newTable(capacity);
+	}
+
+	/**
+	 * Add the column if an equal column isn't in the dictionary yet
+	 *
+	 * @param array
+	 * @param offset
+	 * @param length
+	 * @param value  a non-negative value for the column
+	 * @return the value of the equal column in the dictionary, or -1 if the
+	 *         column has been added
+	 */
+	int putIfAbsent(byte[] array, int offset, int length, int value) {
+		int hash = hash(array, offset, length);
+		int mask = table.length - 1;
+		int slot = hash & mask;
+		while (table[slot] != ABSENT) {
+			int entry = table[slot];
+			if (hashes[entry] == hash && lengths[entry] == length && Arrays.equals(arrays[entry], offsets[entry],
+					offsets[entry] + length, array, offset, offset + length)) {
+				return values[entry];
+			}
+			slot = (slot + 1) & mask;
+		}
+
+		if (size == arrays.length) {
+			grow();
+			return putIfAbsent(array, offset, length, value);
+		}
+
+		arrays[size] = array;
+		offsets[size] = offset;
+		lengths[size] = length;
+		hashes[size] = hash;
+		values[size] = value;
+		table[slot] = size;
+		size++;
+		return ABSENT;
+	}
+
+	int size() {
+		return size;
+	}
+
+	private void grow() {
+		int capacity = arrays.length * 2;
+		arrays = Arrays.copyOf(arrays, capacity);
+		offsets = Arrays.copyOf(offsets, capacity);
+		lengths = Arrays.copyOf(lengths, capacity);
+		hashes = Arrays.copyOf(hashes, capacity);
+		values = Arrays.copyOf(values, capacity);
+
+		table = newTable(capacity);
+		int mask = table.length - 1;
+		for (int entry = 0; entry < size; entry++) {
+			int slot = hashes[entry] & mask;
+			while (table[slot] != ABSENT) {
+				slot = (slot + 1) & mask;
+			}
+			table[slot] = entry;
+		}
+	}
+
+	/**
+	 * The table is kept at most half full
+	 */
+	private static int[] newTable(int capacity) {
+		int[] table = new int[Integer.highestOneBit(capacity - 1) << 2];
+		Arrays.fill(table, ABSENT);
+		return table;
+	}
+
+	private static int hash(byte[] array, int offset, int length) {
+		int hash = length;
+		for (int i = offset; i < offset + length; i++) {
+			hash = 31 * hash + array[i];
+		}
+		// spread the high bits over the low bits that select the slot
+		return hash ^ (hash >>> 16);
+	}
+
+}
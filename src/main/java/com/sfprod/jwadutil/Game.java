@@ -25,11 +25,17 @@ public enum Game {
 	private final String title;
 	private final ByteOrder byteOrder;
 	private final String wadFile;
+	private final ColumnDecimation columnDecimation;
 
 	Game(String title, ByteOrder byteOrder, String wadFile) {
+		this(title, byteOrder, wadFile, ColumnDecimation.DEFAULT);
+	}
+
+	Game(String title, ByteOrder byteOrder, String wadFile, ColumnDecimation columnDecimation) {
 		this.title = title;
 		this.byteOrder = byteOrder;
 		this.wadFile = wadFile;
+		this.columnDecimation = columnDecimation;
 	}
 
 	public String getTitle() {
@@ -43,4 +49,8 @@ public enum Game {
 	public String getWadFile() {
 		return wadFile;
 	}
+
+	public ColumnDecimation getColumnDecimation() {
+		return columnDecimation;
+	}
 }
@@ -0,0 +1,99 @@
+package com.sfprod.jwadutil;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.IndexColorModel;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.imageio.ImageIO;
+
+/**
+ * An image of which every pixel is the index of a color in a palette, read
+ * from a PNG resource. The pixels of PNG files with a palette are read in bulk
+ * from the raster and the palette of the PNG file is mapped once. Every PNG
+ * resource is decoded once per palette per process.
+ *
+ * @param width
+ * @param height
+ * @param pixels width * height palette indexes
+ */
+public record IndexedImage(int width, int height, byte[] pixels) {
+
+	/**
+	 * @param name    the name of the PNG resource
+	 * @param palette every color of the image has to be in the palette
+	 * @return
+	 */
+	public static IndexedImage read(String name, List<Color> palette) {
+		IndexedImage image = Resources.getDecodedResource(name, IndexedImage.class, List.copyOf(palette),
+				inputStream -> decode(name, ImageIO.read(inputStream), palette));
+		return new IndexedImage(image.width, image.height, image.pixels.clone());
+	}
+
+	private static IndexedImage decode(String name, BufferedImage image, List<Color> palette) {
+		int width = image.getWidth();
+		int height = image.getHeight();
+		PaletteIndex paletteIndex = new PaletteIndex(palette);
+		byte[] pixels = new byte[width * height];
+
+		if (image.getColorModel() instanceof IndexColorModel indexColorModel
+				&& image.getRaster().getNumBands() == 1) {
+			int[] pngPalette = new int[indexColorModel.getMapSize()];
+			indexColorModel.getRGBs(pngPalette);
+			int[] samples = image.getRaster().getSamples(0, 0, width, height, 0, (int[]) null);
+			byte[] lut = new byte[pngPalette.length];
+			boolean[] mapped = new boolean[pngPalette.length];
+			for (int i = 0; i < pixels.length; i++) {
+				int sample = samples[i];
+				if (!mapped[sample]) {
+					lut[sample] = paletteIndex.indexOf(pngPalette[sample], name);
+					mapped[sample] = true;
+				}
+				pixels[i] = lut[sample];
+			}
+		} else {
+			int[] rgbs = image.getRGB(0, 0, width, height, null, 0, width);
+			for (int i = 0; i < pixels.length; i++) {
+				pixels[i] = paletteIndex.indexOf(rgbs[i], name);
+			}
+		}
+
+		return new IndexedImage(width, height, pixels);
+	}
+
+	/**
+	 * @param packing
+	 * @return the pixels packed
+	 */
+	public byte[] pack(PixelPacking packing) {
+		return packing.pack(pixels);
+	}
+
+	/**
+	 * The RGB values of a palette sorted, for a binary search
+	 */
+	private static final class PaletteIndex {
+
+		private final int[] rgbs;
+		private final byte[] indexes;
+
+		private PaletteIndex(List<Color> palette) {
+			List<Integer> paletteRgbs = palette.stream().map(Color::getRGB).toList();
+			this.rgbs = paletteRgbs.stream().mapToInt(Integer::intValue).distinct().sorted().toArray();
+			this.indexes = new byte[rgbs.length];
+			for (int i = 0; i < rgbs.length; i++) {
+				indexes[i] = (byte) paletteRgbs.indexOf(rgbs[i]);
+			}
+		}
+
+		private byte indexOf(int rgb, String name) {
+			int i = Arrays.binarySearch(rgbs, rgb);
+			if (i < 0) {
+				throw new IllegalArgumentException(
+						"The color " + Integer.toHexString(rgb) + " of " + name + " isn't in the palette");
+			}
+			return indexes[i];
+		}
+	}
+
+}
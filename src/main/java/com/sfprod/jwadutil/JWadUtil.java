@@ -1,12 +1,67 @@
 package com.sfprod.jwadutil;
 
+import java.io.PrintStream;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class JWadUtil {
 
 	public static void main(String[] args) {
 		// createWad(Game.DOOMTD3_BIG_ENDIAN);
-		Arrays.stream(Game.values()).forEach(JWadUtil::createWad);
+		createWads(Game.values());
+	}
+
+	/**
+	 * Create the WAD files of the games in parallel, skipping the games whose
+	 * inputs haven't changed since the last build. The console output of each
+	 * game is printed in one piece, in the order of the games.
+	 *
+	 * @param games
+	 */
+	static void createWads(Game... games) {
+		PrintStream console = System.out;
+		ThreadBufferedOutputStream threadBufferedOutputStream = new ThreadBufferedOutputStream(console);
+		System.setOut(new PrintStream(threadBufferedOutputStream, true));
+
+		BuildManifest buildManifest = new BuildManifest();
+
+		try (ExecutorService executorService = Executors
+				.newFixedThreadPool(Runtime.getRuntime().availableProcessors())) {
+			List<Future<byte[]>> outputs = Arrays.stream(games).map(game -> executorService
+					.submit(() -> threadBufferedOutputStream.capture(() -> createWad(game, buildManifest)))).toList();
+
+			for (Future<byte[]> output : outputs) {
+				console.writeBytes(output.get());
+				console.flush();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException runtimeException) {
+				throw runtimeException;
+			}
+			throw new IllegalStateException(e.getCause());
+		} finally {
+			System.setOut(console);
+			buildManifest.save();
+		}
+	}
+
+	private static void createWad(Game game, BuildManifest buildManifest) {
+		if (buildManifest.isUpToDate(game)) {
+			System.out.println("WAD file for " + game + " is up to date");
+			System.out.println();
+			return;
+		}
+
+		Set<String> resources = Resources.record(() -> createWad(game));
+		buildManifest.update(game, resources);
 	}
 
 	static void createWad(Game game) {
@@ -7,7 +7,23 @@ import static com.sfprod.utils.StringUtils.toStringUpperCase;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 
-public record Lump(byte[] name, byte[] data, ByteOrder byteOrder) {
+public final class Lump {
+
+	private final byte[] name;
+	private final ByteOrder byteOrder;
+
+	/**
+	 * Read-only view of the lump in the mapped WAD file, until the data is
+	 * materialized
+	 */
+	private ByteBuffer view;
+	private byte[] data;
+
+	public Lump(byte[] name, byte[] data, ByteOrder byteOrder) {
+		this.name = name;
+		this.data = data;
+		this.byteOrder = byteOrder;
+	}
 
 	public Lump(String name, byte[] data, ByteOrder byteOrder) {
 		this(toByteArray(name, 8), data, byteOrder);
@@ -21,8 +37,61 @@ public record Lump(byte[] name, byte[] data, ByteOrder byteOrder) {
 		this(name, toArray(byteBuffer, size), byteBuffer.order());
 	}
 
+	private Lump(byte[] name, ByteBuffer view, ByteOrder byteOrder) {
+		this.name = name;
+		this.view = view;
+		this.byteOrder = byteOrder;
+	}
+
+	/**
+	 * Create a lump backed by a slice of a WAD file. The data is only copied
+	 * when {@link #data()} is called.
+	 *
+	 * @param name
+	 * @param view
+	 * @param byteOrder
+	 * @return
+	 */
+	static Lump ofView(byte[] name, ByteBuffer view, ByteOrder byteOrder) {
+		return new Lump(name, view.asReadOnlyBuffer(), byteOrder);
+	}
+
+	/**
+	 * Create a lump with the same name and data. The copy gets its own copy of
+	 * the data when {@link #data()} is called, so the data of this lump must not
+	 * be changed anymore.
+	 *
+	 * @return
+	 */
+	Lump copy() {
+		return ofView(name, dataAsByteBuffer(), byteOrder);
+	}
+
+	public byte[] name() {
+		return name;
+	}
+
+	/**
+	 * The data of this lump. Callers are allowed to modify the returned array.
+	 *
+	 * @return
+	 */
+	public byte[] data() {
+		if (data == null) {
+			byte[] copy = new byte[view.remaining()];
+			view.get(view.position(), copy);
+			data = copy;
+			view = null;
+		}
+		return data;
+	}
+
+	public ByteOrder byteOrder() {
+		return byteOrder;
+	}
+
 	public int length() {
-		return data.length;
+		return data != null ? data.length : view.remaining();
 	}
 
 	public String nameAsString() {
@@ -30,7 +99,7 @@ public record Lump(byte[] name, byte[] data, ByteOrder byteOrder) {
 	}
 
 	public ByteBuffer dataAsByteBuffer() {
-		ByteBuffer byteBuffer = ByteBuffer.wrap(data);
+		ByteBuffer byteBuffer = data != null ? ByteBuffer.wrap(data) : view.duplicate();
 		byteBuffer.order(byteOrder);
 		return byteBuffer;
 	}
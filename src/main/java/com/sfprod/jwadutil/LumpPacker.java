@@ -0,0 +1,280 @@
+package com.sfprod.jwadutil;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Lays out the data of lumps in a WAD file so that the data of one lump can
+ * start inside the data of another lump.
+ *
+ * A lump that is completely contained in another lump gets no data of its
+ * own. Lumps whose start equals the end of another lump are chained, greedily
+ * taking the largest overlap first, like {@link MapProcessor} stacks blockmap
+ * lists.
+ */
+final class LumpPacker {
+
+	/**
+	 * Maximum length of a lump that is searched for inside other lumps
+	 */
+	private static final int MAX_CONTAINED_LENGTH = 64;
+
+	/**
+	 * Maximum number of bytes two chained lumps can share
+	 */
+	private static final int MAX_OVERLAP = 256;
+
+	private static final long BASE = 0x100000001b3L;
+
+	private static final int FILTER_SIZE = 1 << 16;
+
+	/**
+	 * @param offsets  offset of every lump relative to the start of the data
+	 * @param segments the data to write
+	 * @param size     the total size of the segments
+	 */
+	record Layout(int[] offsets, List<ByteBuffer> segments, int size) {
+	}
+
+	private LumpPacker() {
+	}
+
+	/**
+	 * Write the data of the lumps one after another
+	 *
+	 * @param datas
+	 * @return
+	 */
+	static Layout concatenate(List<ByteBuffer> datas) {
+		int[] offsets = new int[datas.size()];
+		int size = 0;
+		for (int i = 0; i < datas.size(); i++) {
+			offsets[i] = size;
+			size += datas.get(i).remaining();
+		}
+		return new Layout(offsets, datas, size);
+	}
+
+	/**
+	 * Write the data of the lumps with lumps overlapping each other where
+	 * possible
+	 *
+	 * @param datas the data of the lumps, all different and not empty
+	 * @return
+	 */
+	static Layout pack(List<ByteBuffer> datas) {
+		int count = datas.size();
+		byte[][] bytes = new byte[count][];
+		for (int i = 0; i < count; i++) {
+			ByteBuffer data = datas.get(i);
+			bytes[i] = new byte[data.remaining()];
+			data.get(data.position(), bytes[i]);
+		}
+
+		int[] hosts = new int[count];
+		int[] hostOffsets = new int[count];
+		Arrays.fill(hosts, -1);
+		findContainedLumps(bytes, hosts, hostOffsets);
+
+		int[] successors = new int[count];
+		int[] predecessors = new int[count];
+		int[] overlaps = new int[count];
+		Arrays.fill(successors, -1);
+		Arrays.fill(predecessors, -1);
+		chainOverlappingLumps(bytes, hosts, successors, predecessors, overlaps);
+
+		int[] offsets = new int[count];
+		List<ByteBuffer> segments = new ArrayList<>();
+		int size = 0;
+		for (int head = 0; head < count; head++) {
+			if (hosts[head] != -1 || predecessors[head] != -1) {
+				continue;
+			}
+
+			int overlap = 0;
+			for (int i = head; i != -1; i = successors[i]) {
+				offsets[i] = size - overlap;
+				ByteBuffer data = datas.get(i);
+				segments.add(data.slice(data.position() + overlap, data.remaining() - overlap));
+				size += data.remaining() - overlap;
+				overlap = overlaps[i];
+			}
+		}
+
+		for (int i = 0; i < count; i++) {
+			offsets[i] = resolveOffset(i, offsets, hosts, hostOffsets);
+		}
+
+		return new Layout(offsets, segments, size);
+	}
+
+	private static int resolveOffset(int i, int[] offsets, int[] hosts, int[] hostOffsets) {
+		int offset = 0;
+		while (hosts[i] != -1) {
+			offset += hostOffsets[i];
+			i = hosts[i];
+		}
+		return offsets[i] + offset;
+	}
+
+	/**
+	 * Find small lumps inside larger lumps with a rolling hash, one pass per
+	 * length
+	 */
+	private static void findContainedLumps(byte[][] bytes, int[] hosts, int[] hostOffsets) {
+		Map<Integer, List<Integer>> smallLumpsByLength = new HashMap<>();
+		for (int i = 0; i < bytes.length; i++) {
+			if (bytes[i].length <= MAX_CONTAINED_LENGTH) {
+				smallLumpsByLength.computeIfAbsent(bytes[i].length, k -> new ArrayList<>()).add(i);
+			}
+		}
+
+		List<Integer> lengths = smallLumpsByLength.keySet().stream().sorted(Comparator.reverseOrder()).toList();
+		for (int length : lengths) {
+			Map<Long, List<Integer>> smallLumpsByHash = new HashMap<>();
+			for (int i : smallLumpsByLength.get(length)) {
+				smallLumpsByHash.computeIfAbsent(hash(bytes[i], 0, length), k -> new ArrayList<>()).add(i);
+			}
+
+			long[] filter = new long[FILTER_SIZE / 64];
+			smallLumpsByHash.keySet().forEach(h -> filter[filterIndex(h) >>> 6] |= 1L << filterIndex(h));
+
+			long power = power(length - 1);
+			for (int host = 0; host < bytes.length && !smallLumpsByHash.isEmpty(); host++) {
+				byte[] hostBytes = bytes[host];
+				if (hostBytes.length <= length) {
+					continue;
+				}
+
+				long h = hash(hostBytes, 0, length);
+				for (int offset = 0;; offset++) {
+					List<Integer> candidates = (filter[filterIndex(h) >>> 6] & (1L << filterIndex(h))) != 0
+							? smallLumpsByHash.get(h)
+							: null;
+					if (candidates != null) {
+						for (int c = 0; c < candidates.size(); c++) {
+							int i = candidates.get(c);
+							if (Arrays.equals(bytes[i], 0, length, hostBytes, offset, offset + length)) {
+								hosts[i] = host;
+								hostOffsets[i] = offset;
+								candidates.remove(c);
+								c--;
+							}
+						}
+						if (candidates.isEmpty()) {
+							smallLumpsByHash.remove(h);
+						}
+					}
+
+					if (offset + length == hostBytes.length) {
+						break;
+					}
+					h = (h - (hostBytes[offset] & 0xff) * power) * BASE + (hostBytes[offset + length] & 0xff);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Greedily chain lumps whose start equals the end of another lump, largest
+	 * overlaps first
+	 */
+	private static void chainOverlappingLumps(byte[][] bytes, int[] hosts, int[] successors, int[] predecessors,
+			int[] overlaps) {
+		int[] roots = IntStream.range(0, bytes.length).filter(i -> hosts[i] == -1).toArray();
+
+		// prefixHashes[i][k] and suffixHashes[i][k] are the hashes of the first and
+		// the last k bytes of lump i, for every possible overlap k
+		long[][] prefixHashes = new long[bytes.length][];
+		long[][] suffixHashes = new long[bytes.length][];
+		for (int i : roots) {
+			byte[] b = bytes[i];
+			int maxOverlap = Math.min(b.length - 1, MAX_OVERLAP);
+			prefixHashes[i] = new long[maxOverlap + 1];
+			suffixHashes[i] = new long[maxOverlap + 1];
+			long power = 1;
+			for (int k = 1; k <= maxOverlap; k++) {
+				prefixHashes[i][k] = prefixHashes[i][k - 1] * BASE + (b[k - 1] & 0xff);
+				suffixHashes[i][k] = suffixHashes[i][k - 1] + (b[b.length - k] & 0xff) * power;
+				power *= BASE;
+			}
+		}
+
+		int[] chains = new int[bytes.length];
+		for (int i = 0; i < chains.length; i++) {
+			chains[i] = i;
+		}
+
+		for (int overlap = MAX_OVERLAP; overlap > 0; overlap--) {
+			Map<Long, List<Integer>> lumpsByPrefix = new HashMap<>();
+			for (int i : roots) {
+				if (predecessors[i] == -1 && overlap < prefixHashes[i].length) {
+					lumpsByPrefix.computeIfAbsent(prefixHashes[i][overlap], k -> new ArrayList<>()).add(i);
+				}
+			}
+			if (lumpsByPrefix.isEmpty()) {
+				continue;
+			}
+
+			for (int i : roots) {
+				byte[] a = bytes[i];
+				if (successors[i] != -1 || overlap >= suffixHashes[i].length) {
+					continue;
+				}
+
+				List<Integer> candidates = lumpsByPrefix.get(suffixHashes[i][overlap]);
+				if (candidates == null) {
+					continue;
+				}
+
+				for (int c = 0; c < candidates.size(); c++) {
+					int j = candidates.get(c);
+					if (predecessors[j] == -1 && find(chains, i) != find(chains, j)
+							&& Arrays.equals(a, a.length - overlap, a.length, bytes[j], 0, overlap)) {
+						successors[i] = j;
+						predecessors[j] = i;
+						overlaps[i] = overlap;
+						chains[find(chains, j)] = find(chains, i);
+						candidates.remove(c);
+						break;
+					}
+				}
+			}
+		}
+	}
+
+	private static int find(int[] chains, int i) {
+		while (chains[i] != i) {
+			chains[i] = chains[chains[i]];
+			i = chains[i];
+		}
+		return i;
+	}
+
+	private static long hash(byte[] bytes, int from, int to) {
+		long h = 0;
+		for (int i = from; i < to; i++) {
+			h = h * BASE + (bytes[i] & 0xff);
+		}
+		return h;
+	}
+
+	private static int filterIndex(long h) {
+		return (int) ((h * 0x9E3779B97F4A7C15L) >>> 48);
+	}
+
+	private static long power(int exponent) {
+		long p = 1;
+		for (int i = 0; i < exponent; i++) {
+			p *= BASE;
+		}
+		return p;
+	}
+
+}
@@ -52,7 +52,7 @@ public class MapProcessor {
 	protected final List<Color> vgaColors;
 
 	private List<Color> availableColors;
-	private final Map<Short, Color> availableColorsMap = new HashMap<>();
+	private ColorMatcher availableColorsMatcher;
 
 	public MapProcessor(ByteOrder byteOrder, WadFile wadFile) {
 		this.byteOrder = byteOrder;
@@ -460,9 +460,7 @@ public class MapProcessor {
 
 	protected short calculateAverageColor(Map<String, Short> flatToColor, String flatname) {
 		if (flatToColor.isEmpty()) {
-			for (short i = 0; i < 256; i++) {
-				this.availableColorsMap.put(i, availableColors.get(i));
-			}
+			this.availableColorsMatcher = new ColorMatcher(availableColors);
 		}
 
 		if (!flatToColor.containsKey(flatname)) {
@@ -493,19 +491,8 @@ public class MapProcessor {
 				averageColor = Color.blendColors(colors);
 			}
 
-			short closestAverageColorIndex = -1;
-			int minDistance = Integer.MAX_VALUE;
-			for (Map.Entry<Short, Color> entry : availableColorsMap.entrySet()) {
-				short i = entry.getKey();
-				Color color = entry.getValue();
-
-				int distance = averageColor.calculateDistance(color);
-				if (distance < minDistance) {
-					minDistance = distance;
-					closestAverageColorIndex = i;
-				}
-			}
-			availableColorsMap.remove(closestAverageColorIndex);
+			short closestAverageColorIndex = (short) availableColorsMatcher.closestColor(averageColor);
+			availableColorsMatcher.remove(closestAverageColorIndex);
 
 			flatToColor.put(flatname, closestAverageColorIndex);
 			assert flatToColor.size() == new HashSet<>(flatToColor.values()).size();
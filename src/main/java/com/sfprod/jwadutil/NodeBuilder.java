@@ -0,0 +1,589 @@
+package com.sfprod.jwadutil;
+
+import static com.sfprod.utils.ByteBufferUtils.newByteBuffer;
+import static com.sfprod.utils.NumberUtils.toShort;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Builds the SEGS, SSECTORS, NODES, REJECT and BLOCKMAP lumps of a map from its
+ * LINEDEFS, SIDEDEFS, VERTEXES and SECTORS lumps.
+ *
+ * The partition lines are picked among the segs. The cost of a partition line
+ * is the number of segs it splits times the split cost plus the difference
+ * between the number of segs on both sides, so a higher split cost gives fewer
+ * segs and a lower split cost gives a shallower tree.
+ */
+final class NodeBuilder {
+
+	/**
+	 * Cost of splitting a seg relative to one seg of imbalance
+	 */
+	static final int DEFAULT_SPLIT_COST = 8;
+
+	// Lump order in a map WAD, see MapProcessor
+	private static final int ML_LINEDEFS = 2;
+	private static final int ML_SIDEDEFS = 3;
+	private static final int ML_VERTEXES = 4;
+	private static final int ML_SEGS = 5;
+	private static final int ML_SSECTORS = 6;
+	private static final int ML_NODES = 7;
+	private static final int ML_SECTORS = 8;
+	private static final int ML_REJECT = 9;
+	private static final int ML_BLOCKMAP = 10;
+
+	private static final int SIZE_OF_MAPLINEDEF = 2 + 2 + 2 + 2 + 2 + 2 * 2;
+	private static final int SIZE_OF_MAPSIDEDEF = 2 + 2 + 8 + 8 + 8 + 2;
+	private static final int SIZE_OF_MAPSECTOR = 2 + 2 + 8 + 8 + 2 + 2 + 2;
+	private static final int SIZE_OF_MAPSEG = 2 + 2 + 2 + 2 + 2 + 2;
+	private static final int SIZE_OF_MAPSUBSECTOR = 2 + 2;
+	private static final int SIZE_OF_MAPNODE = 2 + 2 + 2 + 2 + 2 * 4 * 2 + 2 * 2;
+
+	private static final int NO_INDEX = 0xffff;
+	private static final int NF_SUBSECTOR = 0x8000;
+
+	private static final int MAPBLOCKSHIFT = 7;
+	private static final int MAPBLOCKSIZE = 1 << MAPBLOCKSHIFT;
+
+	// Deeper trees are a sign of a map the node builder can't handle
+	private static final int MAX_DEPTH = 1024;
+
+	private static final int BOXTOP = 0;
+	private static final int BOXBOTTOM = 1;
+	private static final int BOXLEFT = 2;
+	private static final int BOXRIGHT = 3;
+
+	private final int splitCost;
+
+	NodeBuilder() {
+		this(DEFAULT_SPLIT_COST);
+	}
+
+	NodeBuilder(int splitCost) {
+		this.splitCost = splitCost;
+	}
+
+	private static record Vertex(int x, int y) {
+	}
+
+	private static record Linedef(int v1, int v2, int sidenum0, int sidenum1) {
+	}
+
+	private static record Seg(int v1, int v2, int linedef, int side) {
+	}
+
+	private static record Node(int x, int y, int dx, int dy, int[] bbox0, int[] bbox1, int child0, int child1) {
+	}
+
+	/**
+	 * The state of building the nodes of one map
+	 */
+	private static final class Level {
+		private final List<Vertex> vertexes;
+		private final List<Linedef> linedefs;
+		private final Map<Vertex, Integer> vertexNums = new HashMap<>();
+
+		private final List<Seg> segs = new ArrayList<>();
+		private final List<int[]> subsectors = new ArrayList<>();
+		private final List<Node> nodes = new ArrayList<>();
+
+		private Level(List<Vertex> vertexes, List<Linedef> linedefs) {
+			this.vertexes = vertexes;
+			this.linedefs = linedefs;
+			for (int i = 0; i < vertexes.size(); i++) {
+				vertexNums.putIfAbsent(vertexes.get(i), i);
+			}
+		}
+	}
+
+	/**
+	 * Build the nodes of the map with the given marker lump
+	 *
+	 * @param wadFile
+	 * @param lumpNum
+	 */
+	void buildNodes(WadFile wadFile, int lumpNum) {
+		List<Vertex> vertexes = readVertexes(wadFile.getLumpByNum(lumpNum + ML_VERTEXES));
+		List<Linedef> linedefs = readLinedefs(wadFile.getLumpByNum(lumpNum + ML_LINEDEFS));
+		int[] sidedefSectors = readSidedefSectors(wadFile.getLumpByNum(lumpNum + ML_SIDEDEFS));
+		int sectorCount = wadFile.getLumpByNum(lumpNum + ML_SECTORS).length() / SIZE_OF_MAPSECTOR;
+
+		Level level = new Level(new ArrayList<>(vertexes), linedefs);
+
+		List<Seg> segs = new ArrayList<>();
+		for (int linenum = 0; linenum < linedefs.size(); linenum++) {
+			Linedef linedef = linedefs.get(linenum);
+			if (vertexes.get(linedef.v1()).equals(vertexes.get(linedef.v2()))) {
+				continue;
+			}
+			if (linedef.sidenum0() != NO_INDEX) {
+				segs.add(new Seg(linedef.v1(), linedef.v2(), linenum, 0));
+			}
+			if (linedef.sidenum1() != NO_INDEX) {
+				segs.add(new Seg(linedef.v2(), linedef.v1(), linenum, 1));
+			}
+		}
+
+		if (!segs.isEmpty()) {
+			buildNode(level, segs, 0);
+		}
+
+		replaceLump(wadFile, lumpNum + ML_VERTEXES, createVertexes(level));
+		replaceLump(wadFile, lumpNum + ML_SEGS, createSegs(level));
+		replaceLump(wadFile, lumpNum + ML_SSECTORS, createSubsectors(level));
+		replaceLump(wadFile, lumpNum + ML_NODES, createNodes(level));
+		replaceLump(wadFile, lumpNum + ML_REJECT, createReject(linedefs, sidedefSectors, sectorCount));
+		replaceLump(wadFile, lumpNum + ML_BLOCKMAP, createBlockmap(vertexes, linedefs));
+	}
+
+	private static void replaceLump(WadFile wadFile, int lumpNum, ByteBuffer byteBuffer) {
+		Lump oldLump = wadFile.getLumpByNum(lumpNum);
+		wadFile.replaceLump(lumpNum, new Lump(oldLump.name(), byteBuffer.position(), byteBuffer));
+	}
+
+	private static List<Vertex> readVertexes(Lump lump) {
+		ByteBuffer byteBuffer = lump.dataAsByteBuffer();
+		List<Vertex> vertexes = new ArrayList<>();
+		for (int i = 0; i < lump.length() / (2 + 2); i++) {
+			vertexes.add(new Vertex(byteBuffer.getShort(), byteBuffer.getShort()));
+		}
+		return vertexes;
+	}
+
+	private static List<Linedef> readLinedefs(Lump lump) {
+		ByteBuffer byteBuffer = lump.dataAsByteBuffer();
+		List<Linedef> linedefs = new ArrayList<>();
+		for (int i = 0; i < lump.length() / SIZE_OF_MAPLINEDEF; i++) {
+			int v1 = Short.toUnsignedInt(byteBuffer.getShort());
+			int v2 = Short.toUnsignedInt(byteBuffer.getShort());
+			byteBuffer.getShort(); // flags
+			byteBuffer.getShort(); // special
+			byteBuffer.getShort(); // tag
+			int sidenum0 = Short.toUnsignedInt(byteBuffer.getShort());
+			int sidenum1 = Short.toUnsignedInt(byteBuffer.getShort());
+			linedefs.add(new Linedef(v1, v2, sidenum0, sidenum1));
+		}
+		return linedefs;
+	}
+
+	private static int[] readSidedefSectors(Lump lump) {
+		ByteBuffer byteBuffer = lump.dataAsByteBuffer();
+		int[] sectors = new int[lump.length() / SIZE_OF_MAPSIDEDEF];
+		for (int i = 0; i < sectors.length; i++) {
+			sectors[i] = byteBuffer.getShort(i * SIZE_OF_MAPSIDEDEF + SIZE_OF_MAPSIDEDEF - 2);
+		}
+		return sectors;
+	}
+
+	/**
+	 * Recursively split the segs until every set of segs is convex
+	 *
+	 * @param level
+	 * @param segs
+	 * @param depth the depth of the node in the tree
+	 * @return the child number of the node or subsector
+	 */
+	private int buildNode(Level level, List<Seg> segs, int depth) {
+		if (depth > MAX_DEPTH) {
+			throw new IllegalStateException("The nodes are nested deeper than " + MAX_DEPTH + " levels");
+		}
+
+		Seg partition = choosePartition(level, segs);
+		if (partition == null) {
+			level.subsectors.add(new int[] { segs.size(), level.segs.size() });
+			level.segs.addAll(segs);
+			return (level.subsectors.size() - 1) | NF_SUBSECTOR;
+		}
+
+		Vertex v1 = level.vertexes.get(partition.v1());
+		Vertex v2 = level.vertexes.get(partition.v2());
+		int dx = v2.x() - v1.x();
+		int dy = v2.y() - v1.y();
+
+		List<Seg> frontSegs = new ArrayList<>();
+		List<Seg> backSegs = new ArrayList<>();
+		for (Seg seg : segs) {
+			divideSeg(level, seg, v1, dx, dy, frontSegs, backSegs);
+		}
+
+		int[] frontBox = boundingBox(level, frontSegs);
+		int[] backBox = boundingBox(level, backSegs);
+		int frontChild = buildNode(level, frontSegs, depth + 1);
+		int backChild = buildNode(level, backSegs, depth + 1);
+		level.nodes.add(new Node(v1.x(), v1.y(), dx, dy, frontBox, backBox, frontChild, backChild));
+		return level.nodes.size() - 1;
+	}
+
+	/**
+	 * Pick the partition line with the lowest cost, or null when the segs are
+	 * convex. Partition lines that don't fit in a node, because NODES stores dx
+	 * and dy as signed shorts, and partition lines that would split a seg at one
+	 * of its vertexes after rounding are skipped.
+	 */
+	private Seg choosePartition(Level level, List<Seg> segs) {
+		Seg bestPartition = null;
+		long bestCost = Long.MAX_VALUE;
+		boolean convex = true;
+
+		Set<Integer> triedLinedefs = new HashSet<>();
+		for (Seg partition : segs) {
+			if (!triedLinedefs.add(partition.linedef())) {
+				continue;
+			}
+
+			Vertex p1 = level.vertexes.get(partition.v1());
+			Vertex p2 = level.vertexes.get(partition.v2());
+			long dx = p2.x() - p1.x();
+			long dy = p2.y() - p1.y();
+
+			int front = 0;
+			int back = 0;
+			int splits = 0;
+			boolean usable = fitsInNode(dx) && fitsInNode(dy);
+			for (Seg seg : segs) {
+				Vertex s1 = level.vertexes.get(seg.v1());
+				Vertex s2 = level.vertexes.get(seg.v2());
+				switch (classify(p1, dx, dy, s1, s2)) {
+				case FRONT -> front++;
+				case BACK -> back++;
+				case SPLIT -> {
+					splits++;
+					front++;
+					back++;
+					Vertex splitVertex = splitVertex(p1, dx, dy, s1, s2);
+					usable &= !splitVertex.equals(s1) && !splitVertex.equals(s2);
+				}
+				}
+			}
+
+			if (front == 0 || back == 0) {
+				continue;
+			}
+
+			convex = false;
+			long cost = (long) splits * splitCost + Math.abs(front - back);
+			if (usable && cost < bestCost) {
+				bestCost = cost;
+				bestPartition = partition;
+			}
+		}
+
+		if (!convex && bestPartition == null) {
+			Vertex vertex = level.vertexes.get(segs.get(0).v1());
+			throw new IllegalStateException(
+					"Can't split the segs around (" + vertex.x() + ", " + vertex.y() + ") into convex subsectors");
+		}
+		return bestPartition;
+	}
+
+	private static boolean fitsInNode(long d) {
+		return Short.MIN_VALUE <= d && d <= Short.MAX_VALUE;
+	}
+
+	private static enum Side {
+		FRONT, BACK, SPLIT
+	}
+
+	/**
+	 * Which side of the partition line the seg from s1 to s2 is on. A vertex
+	 * closer than one unit to the line is on the line, because rounding a split
+	 * vertex to whole units can move it off the line. A seg on the line is on the
+	 * front side when it points the same way as the line.
+	 */
+	private static Side classify(Vertex origin, long dx, long dy, Vertex s1, Vertex s2) {
+		int a = sideOf(origin, dx, dy, s1);
+		int b = sideOf(origin, dx, dy, s2);
+		if (a == 0 && b == 0) {
+			return (s2.x() - s1.x()) * dx + (s2.y() - s1.y()) * dy > 0 ? Side.FRONT : Side.BACK;
+		} else if (a >= 0 && b >= 0) {
+			return Side.FRONT;
+		} else if (a <= 0 && b <= 0) {
+			return Side.BACK;
+		} else {
+			return Side.SPLIT;
+		}
+	}
+
+	/**
+	 * @return 1 when the vertex is on the front (right) side of the line, -1 when
+	 *         it's on the back side and 0 when it's closer than one unit to the
+	 *         line
+	 */
+	private static int sideOf(Vertex origin, long dx, long dy, Vertex vertex) {
+		double side = side(origin, dx, dy, vertex);
+		if (side * side < (double) dx * dx + (double) dy * dy) {
+			return 0;
+		}
+		return side > 0 ? 1 : -1;
+	}
+
+	/**
+	 * @return positive when the vertex is on the front (right) side of the line,
+	 *         negative when it's on the back side and 0 when it's on the line
+	 */
+	private static long side(Vertex origin, long dx, long dy, Vertex vertex) {
+		return dy * (vertex.x() - origin.x()) - dx * (vertex.y() - origin.y());
+	}
+
+	/**
+	 * @return where the line crosses the seg from s1 to s2, rounded to whole units
+	 */
+	private static Vertex splitVertex(Vertex origin, long dx, long dy, Vertex s1, Vertex s2) {
+		long a = side(origin, dx, dy, s1);
+		long b = side(origin, dx, dy, s2);
+		double t = (double) a / (a - b);
+		return new Vertex((int) Math.round(s1.x() + t * (s2.x() - s1.x())),
+				(int) Math.round(s1.y() + t * (s2.y() - s1.y())));
+	}
+
+	private static void divideSeg(Level level, Seg seg, Vertex origin, int dx, int dy, List<Seg> frontSegs,
+			List<Seg> backSegs) {
+		Vertex s1 = level.vertexes.get(seg.v1());
+		Vertex s2 = level.vertexes.get(seg.v2());
+
+		switch (classify(origin, dx, dy, s1, s2)) {
+		case FRONT -> frontSegs.add(seg);
+		case BACK -> backSegs.add(seg);
+		case SPLIT -> {
+			Vertex splitVertex = splitVertex(origin, dx, dy, s1, s2);
+			Integer splitVertexNum = level.vertexNums.get(splitVertex);
+			if (splitVertexNum == null) {
+				splitVertexNum = level.vertexes.size();
+				level.vertexes.add(splitVertex);
+				level.vertexNums.put(splitVertex, splitVertexNum);
+			}
+
+			Seg firstPart = new Seg(seg.v1(), splitVertexNum, seg.linedef(), seg.side());
+			Seg secondPart = new Seg(splitVertexNum, seg.v2(), seg.linedef(), seg.side());
+			if (side(origin, dx, dy, s1) > 0) {
+				frontSegs.add(firstPart);
+				backSegs.add(secondPart);
+			} else {
+				backSegs.add(firstPart);
+				frontSegs.add(secondPart);
+			}
+		}
+		}
+	}
+
+	private static int[] boundingBox(Level level, List<Seg> segs) {
+		int[] bbox = { Integer.MIN_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MIN_VALUE };
+		for (Seg seg : segs) {
+			for (int v : new int[] { seg.v1(), seg.v2() }) {
+				Vertex vertex = level.vertexes.get(v);
+				bbox[BOXTOP] = Math.max(bbox[BOXTOP], vertex.y());
+				bbox[BOXBOTTOM] = Math.min(bbox[BOXBOTTOM], vertex.y());
+				bbox[BOXLEFT] = Math.min(bbox[BOXLEFT], vertex.x());
+				bbox[BOXRIGHT] = Math.max(bbox[BOXRIGHT], vertex.x());
+			}
+		}
+		return bbox;
+	}
+
+	private static ByteBuffer createVertexes(Level level) {
+		ByteBuffer byteBuffer = newByteBuffer(ByteOrder.LITTLE_ENDIAN, level.vertexes.size() * (2 + 2));
+		for (Vertex vertex : level.vertexes) {
+			byteBuffer.putShort(toShort(vertex.x()));
+			byteBuffer.putShort(toShort(vertex.y()));
+		}
+		return byteBuffer;
+	}
+
+	private static ByteBuffer createSegs(Level level) {
+		ByteBuffer byteBuffer = newByteBuffer(ByteOrder.LITTLE_ENDIAN, level.segs.size() * SIZE_OF_MAPSEG);
+		for (Seg seg : level.segs) {
+			Linedef linedef = level.linedefs.get(seg.linedef());
+			Vertex lineStart = level.vertexes.get(seg.side() == 0 ? linedef.v1() : linedef.v2());
+			Vertex lineEnd = level.vertexes.get(seg.side() == 0 ? linedef.v2() : linedef.v1());
+			Vertex segStart = level.vertexes.get(seg.v1());
+
+			double radians = Math.atan2(lineEnd.y() - lineStart.y(), lineEnd.x() - lineStart.x());
+			int angle = (int) Math.round(radians * 32768 / Math.PI);
+			int offset = (int) Math.round(Math.hypot(segStart.x() - lineStart.x(), segStart.y() - lineStart.y()));
+
+			byteBuffer.putShort(toShort(seg.v1()));
+			byteBuffer.putShort(toShort(seg.v2()));
+			byteBuffer.putShort((short) angle);
+			byteBuffer.putShort(toShort(seg.linedef()));
+			byteBuffer.putShort(toShort(seg.side()));
+			byteBuffer.putShort(toShort(offset));
+		}
+		return byteBuffer;
+	}
+
+	private static ByteBuffer createSubsectors(Level level) {
+		ByteBuffer byteBuffer = newByteBuffer(ByteOrder.LITTLE_ENDIAN,
+				level.subsectors.size() * SIZE_OF_MAPSUBSECTOR);
+		for (int[] subsector : level.subsectors) {
+			byteBuffer.putShort(toShort(subsector[0])); // numsegs
+			byteBuffer.putShort(toShort(subsector[1])); // firstseg
+		}
+		return byteBuffer;
+	}
+
+	private static ByteBuffer createNodes(Level level) {
+		ByteBuffer byteBuffer = newByteBuffer(ByteOrder.LITTLE_ENDIAN, level.nodes.size() * SIZE_OF_MAPNODE);
+		for (Node node : level.nodes) {
+			byteBuffer.putShort(toShort(node.x()));
+			byteBuffer.putShort(toShort(node.y()));
+			byteBuffer.putShort(toShort(node.dx()));
+			byteBuffer.putShort(toShort(node.dy()));
+			for (int[] bbox : new int[][] { node.bbox0(), node.bbox1() }) {
+				for (int coordinate : bbox) {
+					byteBuffer.putShort(toShort(coordinate));
+				}
+			}
+			byteBuffer.putShort(toShort(node.child0()));
+			byteBuffer.putShort(toShort(node.child1()));
+		}
+		return byteBuffer;
+	}
+
+	/**
+	 * Reject the sectors that can't be reached from each other through two-sided
+	 * linedefs
+	 */
+	private static ByteBuffer createReject(List<Linedef> linedefs, int[] sidedefSectors, int sectorCount) {
+		int[] groups = new int[sectorCount];
+		for (int i = 0; i < sectorCount; i++) {
+			groups[i] = i;
+		}
+
+		for (Linedef linedef : linedefs) {
+			if (linedef.sidenum0() != NO_INDEX && linedef.sidenum1() != NO_INDEX) {
+				int group0 = findGroup(groups, sidedefSectors[linedef.sidenum0()]);
+				int group1 = findGroup(groups, sidedefSectors[linedef.sidenum1()]);
+				groups[group1] = group0;
+			}
+		}
+
+		byte[] reject = new byte[(sectorCount * sectorCount + 7) / 8];
+		for (int i = 0; i < sectorCount; i++) {
+			for (int j = 0; j < sectorCount; j++) {
+				if (findGroup(groups, i) != findGroup(groups, j)) {
+					int bit = i * sectorCount + j;
+					reject[bit >> 3] = (byte) (reject[bit >> 3] | 1 << (bit & 7));
+				}
+			}
+		}
+
+		ByteBuffer byteBuffer = ByteBuffer.wrap(reject);
+		byteBuffer.position(reject.length);
+		return byteBuffer;
+	}
+
+	private static int findGroup(int[] groups, int i) {
+		while (groups[i] != i) {
+			groups[i] = groups[groups[i]];
+			i = groups[i];
+		}
+		return i;
+	}
+
+	private static ByteBuffer createBlockmap(List<Vertex> vertexes, List<Linedef> linedefs) {
+		int minx = Integer.MAX_VALUE;
+		int miny = Integer.MAX_VALUE;
+		int maxx = Integer.MIN_VALUE;
+		int maxy = Integer.MIN_VALUE;
+		for (Linedef linedef : linedefs) {
+			for (int v : new int[] { linedef.v1(), linedef.v2() }) {
+				Vertex vertex = vertexes.get(v);
+				minx = Math.min(minx, vertex.x());
+				miny = Math.min(miny, vertex.y());
+				maxx = Math.max(maxx, vertex.x());
+				maxy = Math.max(maxy, vertex.y());
+			}
+		}
+		if (linedefs.isEmpty()) {
+			minx = miny = maxx = maxy = 0;
+		}
+
+		int bmaporgx = minx - 8;
+		int bmaporgy = miny - 8;
+		int bmapwidth = ((maxx - bmaporgx) >> MAPBLOCKSHIFT) + 1;
+		int bmapheight = ((maxy - bmaporgy) >> MAPBLOCKSHIFT) + 1;
+
+		List<List<Short>> blocklists = new ArrayList<>(bmapwidth * bmapheight);
+		for (int i = 0; i < bmapwidth * bmapheight; i++) {
+			blocklists.add(new ArrayList<>());
+		}
+
+		for (int linenum = 0; linenum < linedefs.size(); linenum++) {
+			Vertex v1 = vertexes.get(linedefs.get(linenum).v1());
+			Vertex v2 = vertexes.get(linedefs.get(linenum).v2());
+			int bx1 = (Math.min(v1.x(), v2.x()) - bmaporgx) >> MAPBLOCKSHIFT;
+			int bx2 = (Math.max(v1.x(), v2.x()) - bmaporgx) >> MAPBLOCKSHIFT;
+			int by1 = (Math.min(v1.y(), v2.y()) - bmaporgy) >> MAPBLOCKSHIFT;
+			int by2 = (Math.max(v1.y(), v2.y()) - bmaporgy) >> MAPBLOCKSHIFT;
+			for (int by = by1; by <= by2; by++) {
+				for (int bx = bx1; bx <= bx2; bx++) {
+					if (crossesBlock(v1, v2, bmaporgx + bx * MAPBLOCKSIZE, bmaporgy + by * MAPBLOCKSIZE)) {
+						blocklists.get(by * bmapwidth + bx).add(toShort(linenum));
+					}
+				}
+			}
+		}
+
+		int offset = 4 + bmapwidth * bmapheight;
+		short[] blocklistOffsets = new short[blocklists.size()];
+		Map<List<Short>, Short> offsets = new HashMap<>();
+		List<List<Short>> uniqueBlocklists = new ArrayList<>();
+		for (int i = 0; i < blocklists.size(); i++) {
+			List<Short> blocklist = blocklists.get(i);
+			Short blocklistOffset = offsets.get(blocklist);
+			if (blocklistOffset == null) {
+				blocklistOffset = toShort(offset);
+				offsets.put(blocklist, blocklistOffset);
+				uniqueBlocklists.add(blocklist);
+				offset += 1 + blocklist.size() + 1;
+			}
+			blocklistOffsets[i] = blocklistOffset;
+		}
+
+		ByteBuffer byteBuffer = newByteBuffer(ByteOrder.LITTLE_ENDIAN, offset * 2);
+		byteBuffer.putShort(toShort(bmaporgx));
+		byteBuffer.putShort(toShort(bmaporgy));
+		byteBuffer.putShort(toShort(bmapwidth));
+		byteBuffer.putShort(toShort(bmapheight));
+		for (short blocklistOffset : blocklistOffsets) {
+			byteBuffer.putShort(blocklistOffset);
+		}
+
+		for (List<Short> blocklist : uniqueBlocklists) {
+			byteBuffer.putShort((short) 0);
+			for (short linenum : blocklist) {
+				byteBuffer.putShort(linenum);
+			}
+			byteBuffer.putShort((short) -1);
+		}
+
+		return byteBuffer;
+	}
+
+	/**
+	 * @return true if the line from v1 to v2 touches the block with the given
+	 *         bottom left corner
+	 */
+	private static boolean crossesBlock(Vertex v1, Vertex v2, int blockx, int blocky) {
+		long dx = v2.x() - v1.x();
+		long dy = v2.y() - v1.y();
+		boolean front = false;
+		boolean back = false;
+		for (int x : new int[] { blockx, blockx + MAPBLOCKSIZE }) {
+			for (int y : new int[] { blocky, blocky + MAPBLOCKSIZE }) {
+				long side = side(v1, dx, dy, new Vertex(x, y));
+				front |= side >= 0;
+				back |= side <= 0;
+			}
+		}
+		return front && back;
+	}
+
+}
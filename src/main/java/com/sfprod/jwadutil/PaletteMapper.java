@@ -0,0 +1,105 @@
+package com.sfprod.jwadutil;
+
+import static com.sfprod.utils.NumberUtils.toByte;
+import static com.sfprod.utils.NumberUtils.toInt;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Maps the 256 colors of a palette to other colors with a table of bytes.
+ * Colors can be unmapped, converting an unmapped color throws an
+ * {@link IllegalArgumentException}.
+ */
+public final class PaletteMapper {
+
+	private static final int UNMAPPED = -1;
+
+	private final byte[] table = new byte[256];
+	private final BitSet unmapped = new BitSet(256);
+
+	private PaletteMapper(int[] colors) {
+		if (colors.length != 256) {
+			throw new IllegalArgumentException("A palette mapper needs 256 colors, not " + colors.length);
+		}
+
+		for (int i = 0; i < 256; i++) {
+			if (colors[i] == UNMAPPED) {
+				unmapped.set(i);
+			} else {
+				table[i] = toByte(colors[i]);
+			}
+		}
+	}
+
+	/**
+	 * @param colors 256 colors from 0 to 255, or -1 for an unmapped color
+	 * @return
+	 */
+	public static PaletteMapper of(int... colors) {
+		return new PaletteMapper(colors);
+	}
+
+	/**
+	 * @param colors 256 colors from 0 to 255, or -1 for an unmapped color
+	 * @return
+	 */
+	public static PaletteMapper of(List<Integer> colors) {
+		return new PaletteMapper(colors.stream().mapToInt(Integer::intValue).toArray());
+	}
+
+	/**
+	 * @param colors 256 colors
+	 * @return
+	 */
+	public static PaletteMapper of(byte[] colors) {
+		int[] ints = new int[colors.length];
+		for (int i = 0; i < colors.length; i++) {
+			ints[i] = toInt(colors[i]);
+		}
+		return new PaletteMapper(ints);
+	}
+
+	/**
+	 * @param operator from a mapped color from 0 to 255 to another color from 0 to
+	 *                 255
+	 * @return a palette mapper that maps a color to the operator applied to the
+	 *         color of this palette mapper, unmapped colors stay unmapped
+	 */
+	public PaletteMapper map(IntUnaryOperator operator) {
+		int[] colors = new int[256];
+		for (int i = 0; i < 256; i++) {
+			colors[i] = unmapped.get(i) ? UNMAPPED : operator.applyAsInt(toInt(table[i]));
+		}
+		return new PaletteMapper(colors);
+	}
+
+	public byte apply(byte color) {
+		int i = toInt(color);
+		if (unmapped.get(i)) {
+			throw new IllegalArgumentException("Color " + i + " isn't mapped");
+		}
+		return table[i];
+	}
+
+	/**
+	 * Convert the colors in place
+	 *
+	 * @param data
+	 * @param from inclusive
+	 * @param to   exclusive
+	 */
+	public void apply(byte[] data, int from, int to) {
+		if (unmapped.isEmpty()) {
+			for (int i = from; i < to; i++) {
+				data[i] = table[data[i] & 0xff];
+			}
+		} else {
+			for (int i = from; i < to; i++) {
+				data[i] = apply(data[i]);
+			}
+		}
+	}
+
+}
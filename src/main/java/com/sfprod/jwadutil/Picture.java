@@ -0,0 +1,167 @@
+package com.sfprod.jwadutil;
+
+import static com.sfprod.utils.NumberUtils.toInt;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A graphic in picture format, decoded in place: the header and the column
+ * offsets are read once and the posts of a column are exposed as ranges of the
+ * data of the lump.
+ *
+ * A column is a list of posts ending with 0xff. A post is a topdelta byte, a
+ * length byte, a padding byte, length pixels and another padding byte.
+ */
+public final class Picture {
+
+	public static final int HEADER_SIZE = 2 + 2 + 2 + 2;
+
+	private static final byte END_OF_COLUMN = -1;
+
+	@FunctionalInterface
+	public interface PostConsumer {
+		/**
+		 * @param topdelta
+		 * @param offset   the offset of the first pixel in the data, the padding
+		 *                 bytes are at offset - 1 and offset + length
+		 * @param length   the number of pixels
+		 */
+		void accept(int topdelta, int offset, int length);
+	}
+
+	private final byte[] data;
+	private final short width;
+	private final short height;
+	private final short leftoffset;
+	private final short topoffset;
+	private final int[] columnofs;
+
+	private Picture(byte[] data, ByteBuffer byteBuffer) {
+		this.data = data;
+		this.width = byteBuffer.getShort();
+		this.height = byteBuffer.getShort();
+		this.leftoffset = byteBuffer.getShort();
+		this.topoffset = byteBuffer.getShort();
+		this.columnofs = new int[width];
+		for (int column = 0; column < width; column++) {
+			columnofs[column] = byteBuffer.getInt();
+		}
+	}
+
+	/**
+	 * Decode the picture in the lump. Changes to the pixels of the picture change
+	 * the data of the lump.
+	 *
+	 * @param lump
+	 * @return
+	 */
+	public static Picture read(Lump lump) {
+		byte[] data = lump.data();
+		return new Picture(data, ByteBuffer.wrap(data).order(lump.byteOrder()));
+	}
+
+	/**
+	 * Decode the picture in the lump whose columns are in a column pool. Changes
+	 * to the pixels of the picture change the data of the column pool.
+	 *
+	 * @param lump       the header and the column offsets
+	 * @param columnPool the columns
+	 * @return
+	 */
+	public static Picture read(Lump lump, Lump columnPool) {
+		return new Picture(columnPool.data(), lump.dataAsByteBuffer());
+	}
+
+	/**
+	 * Decode a copy of the picture in the lump. Changes to the pixels of the
+	 * picture don't change the data of the lump.
+	 *
+	 * @param lump
+	 * @return
+	 */
+	public static Picture copyOf(Lump lump) {
+		byte[] data = new byte[lump.length()];
+		lump.dataAsByteBuffer().get(0, data);
+		return new Picture(data, ByteBuffer.wrap(data).order(lump.byteOrder()));
+	}
+
+	public byte[] data() {
+		return data;
+	}
+
+	public short width() {
+		return width;
+	}
+
+	public short height() {
+		return height;
+	}
+
+	public short leftoffset() {
+		return leftoffset;
+	}
+
+	public short topoffset() {
+		return topoffset;
+	}
+
+	public int columnof(int column) {
+		return columnofs[column];
+	}
+
+	/**
+	 * @param column
+	 * @return the number of bytes of the column, including the 0xff at the end
+	 */
+	public int columnLength(int column) {
+		int start = columnofs[column];
+		int index = start;
+		while (data[index] != END_OF_COLUMN) {
+			index += 2 + 1 + toInt(data[index + 1]) + 1;
+		}
+		return index + 1 - start;
+	}
+
+	public void forEachPost(int column, PostConsumer postConsumer) {
+		int index = columnofs[column];
+		while (data[index] != END_OF_COLUMN) {
+			int length = toInt(data[index + 1]);
+			postConsumer.accept(toInt(data[index]), index + 3, length);
+			index += 2 + 1 + length + 1;
+		}
+	}
+
+	/**
+	 * Write the header with temporary column offsets
+	 *
+	 * @param byteBuffer
+	 */
+	public void putHeader(ByteBuffer byteBuffer) {
+		byteBuffer.putShort(width);
+		byteBuffer.putShort(height);
+		byteBuffer.putShort(leftoffset);
+		byteBuffer.putShort(topoffset);
+
+		for (int column = 0; column < width; column++) {
+			byteBuffer.putInt(-1);
+		}
+	}
+
+	public void putColumn(ByteBuffer byteBuffer, int column) {
+		byteBuffer.put(data, columnofs[column], columnLength(column));
+	}
+
+	/**
+	 * Overwrite the temporary column offsets written by
+	 * {@link #putHeader(ByteBuffer)}
+	 *
+	 * @param byteBuffer
+	 * @param newColumnofs
+	 */
+	public static void putColumnofs(ByteBuffer byteBuffer, int[] newColumnofs) {
+		for (int column = 0; column < newColumnofs.length; column++) {
+			byteBuffer.putInt(HEADER_SIZE + column * 4, newColumnofs[column]);
+		}
+	}
+
+}
@@ -0,0 +1,89 @@
+package com.sfprod.jwadutil;
+
+/**
+ * How palette indexes of pixels are packed into bytes. The first pixel ends up
+ * in the most significant bits.
+ */
+public enum PixelPacking {
+
+	/**
+	 * A pixel per byte
+	 */
+	CHUNKY(1, 1) {
+		@Override
+		void pack(byte[] pixels, int from, byte[] packed, int to) {
+			packed[to] = pixels[from];
+		}
+	},
+
+	/**
+	 * 4 pixels of 2 bits per byte, like CGA
+	 */
+	TWO_BITS(4, 1) {
+		@Override
+		void pack(byte[] pixels, int from, byte[] packed, int to) {
+			packed[to] = (byte) ((pixels[from] << 6) | (pixels[from + 1] << 4) | (pixels[from + 2] << 2)
+					| pixels[from + 3]);
+		}
+	},
+
+	/**
+	 * 2 pixels of 4 bits per byte
+	 */
+	FOUR_BITS(2, 1) {
+		@Override
+		void pack(byte[] pixels, int from, byte[] packed, int to) {
+			packed[to] = (byte) ((pixels[from] << 4) | pixels[from + 1]);
+		}
+	},
+
+	/**
+	 * 4 pixels of 8 colors per 2 bytes, like the 8 color mode of the Sinclair QL.
+	 * The first byte has the green bits and the flash bits, the second byte has
+	 * the red bits and the blue bits. Colors 4 to 7 are green.
+	 */
+	SINCLAIR_QL_MODE_8(4, 2) {
+		@Override
+		void pack(byte[] pixels, int from, byte[] packed, int to) {
+			int green = 0;
+			int redBlue = 0;
+			for (int p = 0; p < 4; p++) {
+				int color = pixels[from + p];
+				green = (green << 2) | (color & 4) >> 1;
+				redBlue = (redBlue << 2) | (color & 3);
+			}
+			packed[to] = (byte) green;
+			packed[to + 1] = (byte) redBlue;
+		}
+	};
+
+	private final int pixelsPerGroup;
+	private final int bytesPerGroup;
+
+	private PixelPacking(int pixelsPerGroup, int bytesPerGroup) {
+		this.pixelsPerGroup = pixelsPerGroup;
+		this.bytesPerGroup = bytesPerGroup;
+	}
+
+	/**
+	 * @param pixels palette indexes that fit in the packing
+	 * @return
+	 */
+	public byte[] pack(byte[] pixels) {
+		if (pixels.length % pixelsPerGroup != 0) {
+			throw new IllegalArgumentException(pixels.length + " pixels can't be packed " + this);
+		}
+
+		byte[] packed = new byte[pixels.length / pixelsPerGroup * bytesPerGroup];
+		for (int from = 0, to = 0; from < pixels.length; from += pixelsPerGroup, to += bytesPerGroup) {
+			pack(pixels, from, packed, to);
+		}
+		return packed;
+	}
+
+	/**
+	 * Pack a group of pixels
+	 */
+	abstract void pack(byte[] pixels, int from, byte[] packed, int to);
+
+}
@@ -0,0 +1,112 @@
+package com.sfprod.jwadutil;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Access to the resources WAD files are created from, like the IWAD file and
+ * the PNG and LMP files. The names of the resources a thread uses are recorded
+ * while it runs {@link #record(Runnable)}. Decoded resources are cached for the
+ * whole process, so that WAD files for several games decode a resource only
+ * once.
+ */
+public final class Resources {
+
+	private static final ThreadLocal<Set<String>> USED_RESOURCES = new ThreadLocal<>();
+
+	private static final Map<DecodedResourceKey, Object> DECODED_RESOURCES = new ConcurrentHashMap<>();
+
+	private Resources() {
+	}
+
+	public static URL getResource(String name) {
+		return use(name, () -> Resources.class.getResource(name));
+	}
+
+	public static InputStream getResourceAsStream(String name) {
+		return use(name, () -> Resources.class.getResourceAsStream(name));
+	}
+
+	/**
+	 * Record the resource as used without reading it, for a resource that was
+	 * read by an earlier call whose result is reused
+	 *
+	 * @param name
+	 */
+	public static void recordUse(String name) {
+		use(name, () -> null);
+	}
+
+	/**
+	 * @param name
+	 * @return a copy of the bytes of the resource
+	 */
+	public static byte[] getResourceAsBytes(String name) {
+		return getDecodedResource(name, byte[].class, null, InputStream::readAllBytes).clone();
+	}
+
+	/**
+	 * Decode a resource once per process. The decoded resource is shared by every
+	 * caller and must not be modified.
+	 *
+	 * @param name
+	 * @param type
+	 * @param variant anything besides the name the decoded resource depends on,
+	 *                like a palette, or null
+	 * @param decoder
+	 * @return
+	 */
+	public static <T> T getDecodedResource(String name, Class<T> type, Object variant, Decoder<T> decoder) {
+		DecodedResourceKey key = new DecodedResourceKey(name, type, variant);
+		return use(name, () -> type.cast(DECODED_RESOURCES.computeIfAbsent(key, k -> decode(name, decoder))));
+	}
+
+	private static <T> T decode(String name, Decoder<T> decoder) {
+		try (InputStream inputStream = Resources.class.getResourceAsStream(name)) {
+			return decoder.decode(inputStream);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static <T> T use(String name, Supplier<T> supplier) {
+		Set<String> usedResources = USED_RESOURCES.get();
+		if (usedResources != null) {
+			usedResources.add(name);
+		}
+		return supplier.get();
+	}
+
+	/**
+	 * Run the runnable and return the names of the resources it has used
+	 *
+	 * @param runnable
+	 * @return
+	 */
+	static Set<String> record(Runnable runnable) {
+		Set<String> usedResources = new TreeSet<>();
+		USED_RESOURCES.set(usedResources);
+		try {
+			runnable.run();
+		} finally {
+			USED_RESOURCES.remove();
+		}
+		return usedResources;
+	}
+
+	@FunctionalInterface
+	public interface Decoder<T> {
+		T decode(InputStream inputStream) throws IOException;
+	}
+
+	private static record DecodedResourceKey(String name, Class<?> type, Object variant) {
+	}
+
+}
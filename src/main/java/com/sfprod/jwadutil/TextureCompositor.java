@@ -0,0 +1,294 @@
+package com.sfprod.jwadutil;
+
+import static com.sfprod.utils.ByteBufferUtils.newByteBuffer;
+import static com.sfprod.utils.ByteBufferUtils.toArray;
+import static com.sfprod.utils.StringUtils.toByteArray;
+import static com.sfprod.utils.StringUtils.toStringUpperCase;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Composes every texture with more than one patch into a single patch, the way
+ * the engine composes it at runtime, so that every texture in TEXTURE1 has one
+ * patch. Textures with transparent pixels are left alone. Textures with the
+ * same composition share the composed patch. Textures with a patch that is
+ * processed differently because of its name, like the switches in the 2 color
+ * text mode, are left alone. Patches that aren't used by a texture anymore are
+ * removed, from PNAMES too.
+ *
+ * Reads and writes TEXTURE1 and PNAMES in the format written by
+ * {@link WadProcessor}.
+ */
+final class TextureCompositor {
+
+	/**
+	 * Every column of a composed patch is a single post, like the columns the
+	 * engine composes, and a post has at most 128 pixels
+	 */
+	private static final int MAX_HEIGHT = 128;
+
+	private final ByteOrder byteOrder;
+	private final WadFile wadFile;
+	private final Predicate<String> isProcessedByName;
+
+	TextureCompositor(ByteOrder byteOrder, WadFile wadFile) {
+		this(byteOrder, wadFile, patchName -> false);
+	}
+
+	/**
+	 * @param byteOrder
+	 * @param wadFile
+	 * @param isProcessedByName true for the names of the patches that must not be
+	 *                          composed into another patch
+	 */
+	TextureCompositor(ByteOrder byteOrder, WadFile wadFile, Predicate<String> isProcessedByName) {
+		this.byteOrder = byteOrder;
+		this.wadFile = wadFile;
+		this.isProcessedByName = isProcessedByName;
+	}
+
+	void composeTextures() {
+		List<String> pnames = readPNames();
+		List<Texture> textures = readTexture1();
+
+		Map<String, Lump> patchLumps = new HashMap<>();
+		wadFile.getLumpsBetween("P1_START", "P1_END").forEach(l -> patchLumps.put(l.nameAsString(), l));
+
+		BitSet usedPatchesBefore = usedPatches(textures);
+
+		Map<ByteBuffer, Short> composedPatches = new HashMap<>();
+		int composedTextureCount = 0;
+		for (int i = 0; i < textures.size(); i++) {
+			Texture texture = textures.get(i);
+			if (texture.patches().size() == 1 || texture.height() > MAX_HEIGHT
+					|| !texture.patches().stream().allMatch(p -> patchLumps.containsKey(pnames.get(p.patch())))
+					|| texture.patches().stream().anyMatch(p -> isProcessedByName.test(pnames.get(p.patch())))) {
+				continue;
+			}
+
+			byte[] composedPatch = compose(texture, pnames, patchLumps);
+			if (composedPatch == null) {
+				continue;
+			}
+
+			Short patch = composedPatches.get(ByteBuffer.wrap(composedPatch));
+			if (patch == null) {
+				patch = (short) pnames.size();
+				String name = createPatchName(pnames);
+				pnames.add(name);
+				composedPatches.put(ByteBuffer.wrap(composedPatch), patch);
+				wadFile.addLump(wadFile.getLumpNumByName("P1_END"),
+						new Lump(name, composedPatch, ByteOrder.LITTLE_ENDIAN));
+			}
+
+			textures.set(i, new Texture(texture.name(), texture.width(), texture.height(),
+					List.of(new TexturePatch((short) 0, (short) 0, patch))));
+			composedTextureCount++;
+		}
+
+		BitSet unusedPatches = usedPatches(textures);
+		unusedPatches.flip(0, pnames.size());
+		unusedPatches.and(usedPatchesBefore);
+		List<String> unusedPatchNames = unusedPatches.stream().mapToObj(pnames::get).filter(patchLumps::containsKey)
+				.toList();
+		unusedPatchNames.forEach(wadFile::removeLump);
+		removePNames(pnames, textures, unusedPatchNames);
+
+		writePNames(pnames);
+		writeTexture1(textures);
+
+		System.out.println("Composed " + composedTextureCount + " textures into " + composedPatches.size()
+				+ " patches, removed " + unusedPatchNames.size() + " patches");
+	}
+
+	/**
+	 * Remove the names of the removed patches from PNAMES and renumber the
+	 * patches of the textures
+	 *
+	 * @param pnames
+	 * @param textures
+	 * @param removedPatchNames
+	 */
+	private static void removePNames(List<String> pnames, List<Texture> textures, List<String> removedPatchNames) {
+		short[] newPatches = new short[pnames.size()];
+		List<String> newPnames = new ArrayList<>(pnames.size());
+		for (int i = 0; i < pnames.size(); i++) {
+			String name = pnames.get(i);
+			if (removedPatchNames.contains(name)) {
+				newPatches[i] = -1;
+			} else {
+				newPatches[i] = (short) newPnames.size();
+				newPnames.add(name);
+			}
+		}
+		pnames.clear();
+		pnames.addAll(newPnames);
+
+		textures.replaceAll(t -> new Texture(t.name(), t.width(), t.height(), t.patches().stream()
+				.map(p -> new TexturePatch(p.originx(), p.originy(), newPatches[p.patch()])).toList()));
+	}
+
+	private static BitSet usedPatches(List<Texture> textures) {
+		BitSet usedPatches = new BitSet();
+		textures.forEach(t -> t.patches().forEach(p -> usedPatches.set(p.patch())));
+		return usedPatches;
+	}
+
+	/**
+	 * Draw the patches of the texture in order, later patches overwrite earlier
+	 * patches, and encode the result in picture format
+	 *
+	 * @param texture
+	 * @param pnames
+	 * @param patchLumps
+	 * @return the composed patch, or null if the texture has transparent pixels
+	 */
+	private static byte[] compose(Texture texture, List<String> pnames, Map<String, Lump> patchLumps) {
+		int width = texture.width();
+		int height = texture.height();
+		byte[] pixels = new byte[width * height];
+		boolean[] opaque = new boolean[width * height];
+
+		for (TexturePatch texturePatch : texture.patches()) {
+			Picture patch = Picture.read(patchLumps.get(pnames.get(texturePatch.patch())));
+			byte[] data = patch.data();
+			int x1 = texturePatch.originx();
+			for (int x = Math.max(0, x1); x < Math.min(width, x1 + patch.width()); x++) {
+				int column = x;
+				patch.forEachPost(x - x1, (topdelta, offset, length) -> {
+					int y1 = texturePatch.originy() + topdelta;
+					for (int y = Math.max(0, y1); y < Math.min(height, y1 + length); y++) {
+						pixels[column * height + y] = data[offset + y - y1];
+						opaque[column * height + y] = true;
+					}
+				});
+			}
+		}
+
+		for (boolean o : opaque) {
+			if (!o) {
+				return null;
+			}
+		}
+
+		ByteBuffer patchData = newByteBuffer(ByteOrder.LITTLE_ENDIAN,
+				Picture.HEADER_SIZE + width * (4 + 2 + 1 + height + 1 + 1));
+		patchData.putShort(texture.width());
+		patchData.putShort(texture.height());
+		patchData.putShort((short) 0);
+		patchData.putShort((short) 0);
+
+		int[] columnofs = new int[width];
+		patchData.position(Picture.HEADER_SIZE + width * 4);
+		for (int x = 0; x < width; x++) {
+			columnofs[x] = patchData.position();
+
+			int first = x * height;
+			patchData.put((byte) 0); // topdelta
+			patchData.put((byte) height);
+			patchData.put(pixels[first]);
+			patchData.put(pixels, first, height);
+			patchData.put(pixels[first + height - 1]);
+			patchData.put((byte) 0xff);
+		}
+
+		int size = patchData.position();
+		Picture.putColumnofs(patchData, columnofs);
+		return toArray(patchData, size);
+	}
+
+	private String createPatchName(List<String> pnames) {
+		int number = pnames.size();
+		String name;
+		do {
+			name = String.format("CTEX%04d", number++);
+		} while (pnames.contains(name) || !wadFile.getLumpsByName(name).isEmpty());
+		return name;
+	}
+
+	private List<String> readPNames() {
+		ByteBuffer pnamesData = wadFile.getLumpByName("PNAMES").dataAsByteBuffer();
+		int nummappatches = pnamesData.getInt();
+		List<String> pnames = new ArrayList<>(nummappatches);
+		for (int i = 0; i < nummappatches; i++) {
+			byte[] name = new byte[8];
+			pnamesData.get(name);
+			pnames.add(toStringUpperCase(name));
+		}
+		return pnames;
+	}
+
+	private void writePNames(List<String> pnames) {
+		ByteBuffer pnamesData = newByteBuffer(byteOrder, 4 + pnames.size() * 8);
+		pnamesData.putInt(pnames.size());
+		pnames.forEach(name -> pnamesData.put(toByteArray(name, 8)));
+		wadFile.replaceLump(new Lump(toByteArray("PNAMES", 8), pnamesData));
+	}
+
+	private List<Texture> readTexture1() {
+		ByteBuffer texture1Data = wadFile.getLumpByName("TEXTURE1").dataAsByteBuffer();
+		int numtextures = texture1Data.getInt();
+		List<Texture> textures = new ArrayList<>(numtextures);
+		for (int i = 0; i < numtextures; i++) {
+			texture1Data.position(texture1Data.getInt(4 + i * 4));
+			byte[] name = new byte[8];
+			texture1Data.get(name);
+			short width = texture1Data.getShort();
+			short height = texture1Data.getShort();
+			short patchcount = texture1Data.getShort();
+
+			List<TexturePatch> patches = new ArrayList<>(patchcount);
+			for (int j = 0; j < patchcount; j++) {
+				short originx = texture1Data.getShort();
+				short originy = texture1Data.getShort();
+				short patch = texture1Data.getShort();
+				patches.add(new TexturePatch(originx, originy, patch));
+			}
+
+			textures.add(new Texture(name, width, height, patches));
+		}
+		return textures;
+	}
+
+	private void writeTexture1(List<Texture> textures) {
+		ByteBuffer texture1Data = newByteBuffer(byteOrder);
+		texture1Data.putInt(textures.size());
+
+		// temp offset values
+		for (int i = 0; i < textures.size(); i++) {
+			texture1Data.putInt(-1);
+		}
+
+		for (int i = 0; i < textures.size(); i++) {
+			texture1Data.putInt(4 + i * 4, texture1Data.position());
+
+			Texture texture = textures.get(i);
+			texture1Data.put(texture.name());
+			texture1Data.putShort(texture.width());
+			texture1Data.putShort(texture.height());
+			texture1Data.putShort((short) texture.patches().size());
+
+			for (TexturePatch patch : texture.patches()) {
+				texture1Data.putShort(patch.originx());
+				texture1Data.putShort(patch.originy());
+				texture1Data.putShort(patch.patch());
+			}
+		}
+
+		wadFile.replaceLump(new Lump(toByteArray("TEXTURE1", 8), texture1Data.position(), texture1Data));
+	}
+
+	private static record TexturePatch(short originx, short originy, short patch) {
+	}
+
+	private static record Texture(byte[] name, short width, short height, List<TexturePatch> patches) {
+	}
+
+}
@@ -0,0 +1,66 @@
+package com.sfprod.jwadutil;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * An output stream that collects the output of a thread in a buffer while that
+ * thread runs {@link #capture(Runnable)}, so the output of threads running at
+ * the same time doesn't get mixed up. Output of other threads is written
+ * directly.
+ */
+final class ThreadBufferedOutputStream extends OutputStream {
+
+	private final OutputStream out;
+	private final ThreadLocal<ByteArrayOutputStream> buffers = new ThreadLocal<>();
+
+	ThreadBufferedOutputStream(OutputStream out) {
+		this.out = out;
+	}
+
+	/**
+	 * Run the runnable and return everything it has written to this stream
+	 *
+	 * @param runnable
+	 * @return
+	 */
+	byte[] capture(Runnable runnable) {
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		buffers.set(buffer);
+		try {
+			runnable.run();
+		} finally {
+			buffers.remove();
+		}
+		return buffer.toByteArray();
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		ByteArrayOutputStream buffer = buffers.get();
+		if (buffer != null) {
+			buffer.write(b);
+		} else {
+			out.write(b);
+		}
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		ByteArrayOutputStream buffer = buffers.get();
+		if (buffer != null) {
+			buffer.write(b, off, len);
+		} else {
+			out.write(b, off, len);
+		}
+	}
+
+	@Override
+	public void flush() throws IOException {
+		if (buffers.get() == null) {
+			out.flush();
+		}
+	}
+
+}
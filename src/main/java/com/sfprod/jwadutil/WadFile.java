@@ -1,35 +1,117 @@
 package com.sfprod.jwadutil;
 
 import static com.sfprod.utils.ByteBufferUtils.newByteBuffer;
-import static com.sfprod.utils.ByteBufferUtils.toArray;
+import static com.sfprod.utils.HashUtils.hash64;
 import static com.sfprod.utils.NumberUtils.toShort;
 import static com.sfprod.utils.StringUtils.toByteArray;
 
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.net.URISyntaxException;
+import java.net.URL;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class WadFile {
 
 	private static final Set<String> FILE_SIGNATURES = Set.of("IWAD", "PWAD");
 
+	/**
+	 * Let the data of one lump start inside the data of another lump, see
+	 * {@link LumpPacker}. Only the layout of the WAD file changes, the data of
+	 * every lump stays the same.
+	 */
+	public static final boolean OVERLAP_LUMPS = false;
+
+	/**
+	 * Build the nodes with {@link NodeBuilder} instead of ZenNode. ZenNode only
+	 * runs on Windows, so other operating systems always use NodeBuilder.
+	 */
+	public static final boolean JAVA_NODE_BUILDER = false;
+
+	private static final String ZENNODE = "/ZenNode-1.2.1/win32/ZenNode.exe";
+	private static final List<String> ZENNODE_ARGUMENTS = List.of("-o");
+
+	/**
+	 * Directory with the output of ZenNode by input WAD file
+	 */
+	private static final Path NODE_CACHE = Path.of("target", "nodecache");
+
+	/**
+	 * The read-only lumps of every WAD file that has been read, by WAD path
+	 */
+	private static final Map<Path, List<Lump>> BASE_WAD_FILES = new ConcurrentHashMap<>();
+
 	private final List<Lump> lumps = new ArrayList<>();
 
+	/**
+	 * Lumps by name in directory order, sorted by name for prefix lookups
+	 */
+	private final NavigableMap<String, List<Lump>> lumpsByName = new TreeMap<>();
+
+	/**
+	 * Lump numbers by lump, rebuilt on demand after lumps have been removed
+	 */
+	private Map<Lump, Integer> lumpNums;
+
 	private static record Filelump(int filepos, int size, byte[] name) {
 	}
 
+	/**
+	 * Create a WAD file with the given lumps
+	 *
+	 * @param lumps
+	 */
+	WadFile(List<Lump> lumps) {
+		lumps.forEach(this::addLump);
+	}
+
+	/**
+	 * Create a working set of the WAD file. The WAD file is only read and
+	 * node-built once; the data of a lump is copied when it's changed.
+	 *
+	 * @param wadPath
+	 */
 	public WadFile(String wadPath) {
-		ByteBuffer byteBuffer = preprocessWad(wadPath);
+		this(readBaseWadFile(wadPath).stream().map(Lump::copy).toList());
+	}
+
+	/**
+	 * Read and node-build the WAD file, or reuse the lumps of an earlier call.
+	 *
+	 * @param wadPath
+	 * @return
+	 */
+	private static List<Lump> readBaseWadFile(String wadPath) {
+		if (isZenNodeUsed()) {
+			// The lumps depend on ZenNode, also when they are reused, so that a WAD
+			// file is created again when ZenNode has changed
+			Resources.recordUse(ZENNODE);
+		}
+		return BASE_WAD_FILES.computeIfAbsent(getResourcePath(wadPath), WadFile::readBaseWadFile);
+	}
+
+	private static List<Lump> readBaseWadFile(Path wadPath) {
+		boolean zennode = isZenNodeUsed();
+		ByteBuffer byteBuffer = zennode ? preprocessWad(wadPath) : mapWadFile(wadPath);
 
 		byte[] identification = new byte[4];
 		byteBuffer.get(identification);
@@ -54,46 +136,123 @@ public class WadFile {
 			filelumps.add(new Filelump(filepos, size, name));
 		}
 
+		WadFile wadFile = new WadFile(List.of());
 		for (Filelump filelump : filelumps) {
-			byte[] data = new byte[filelump.size];
-			byteBuffer.position(filelump.filepos());
-			byteBuffer.get(data);
-			lumps.add(new Lump(filelump.name(), data, ByteOrder.LITTLE_ENDIAN));
+			ByteBuffer view = byteBuffer.slice(filelump.filepos(), filelump.size());
+			wadFile.addLump(Lump.ofView(filelump.name(), view, ByteOrder.LITTLE_ENDIAN));
 		}
+
+		if (!zennode) {
+			wadFile.buildNodes();
+		}
+
+		return wadFile.lumps.stream().map(Lump::copy).toList();
+	}
+
+	private static boolean isZenNodeUsed() {
+		return !JAVA_NODE_BUILDER && System.getProperty("os.name").startsWith("Windows");
+	}
+
+	/**
+	 * @return the node builder the nodes of the maps are built with
+	 */
+	static String getNodeBuilder() {
+		return isZenNodeUsed() ? ZENNODE + " " + String.join(" ", ZENNODE_ARGUMENTS) : NodeBuilder.class.getName();
 	}
 
-	private ByteBuffer preprocessWad(String wadPath) {
-		String os = System.getProperty("os.name");
-		if (!os.startsWith("Windows")) {
-			throw new IllegalStateException("Unsupported operating system: " + os);
+	private void buildNodes() {
+		NodeBuilder nodeBuilder = new NodeBuilder();
+		for (int lumpNum = 0; lumpNum + 1 < lumps.size(); lumpNum++) {
+			if ("THINGS".equals(lumps.get(lumpNum + 1).nameAsString())) {
+				nodeBuilder.buildNodes(this, lumpNum);
+			}
+		}
+	}
+
+	private static Path getResourcePath(String resourceName) {
+		URL resource = Resources.getResource(resourceName);
+		if (resource == null) {
+			throw new IllegalArgumentException(resourceName + " not found");
+		}
+
+		try {
+			return Path.of(resource.toURI());
+		} catch (URISyntaxException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Run ZenNode on the WAD file, or reuse its output of an earlier run on the
+	 * same WAD file
+	 *
+	 * @param wad
+	 * @return
+	 */
+	private static ByteBuffer preprocessWad(Path wad) {
+		Path cachedWadFile = NODE_CACHE.resolve(getNodeCacheKey(wad) + ".wad");
+		if (Files.exists(cachedWadFile)) {
+			return mapWadFile(cachedWadFile);
 		}
 
 		Path tempWadFile;
 		try {
-			tempWadFile = Files.createTempFile("doom", null);
+			Files.createDirectories(NODE_CACHE);
+			tempWadFile = Files.createTempFile(NODE_CACHE, "doom", null);
 			tempWadFile.toFile().deleteOnExit();
 		} catch (IOException e) {
 			throw new UncheckedIOException(e);
 		}
 
 		try {
-			Path wad = Path.of(WadFile.class.getResource(wadPath).toURI());
-			Path zennode = Path.of(WadFile.class.getResource("/ZenNode-1.2.1/win32/ZenNode.exe").toURI());
-
-			ProcessBuilder zennodeProcessBuilder = new ProcessBuilder(zennode.toString(), wad.toString(), "-o",
-					tempWadFile.toString());
+			Path zennode = getResourcePath(ZENNODE);
+
+			List<String> command = new ArrayList<>();
+			command.add(zennode.toString());
+			command.add(wad.toString());
+			command.addAll(ZENNODE_ARGUMENTS);
+			command.add(tempWadFile.toString());
+			ProcessBuilder zennodeProcessBuilder = new ProcessBuilder(command);
 			Process zennodeProcess = zennodeProcessBuilder.start();
 			int zennodeExitCode = zennodeProcess.waitFor();
 			if (zennodeExitCode != 0) {
 				throw new IllegalStateException(
 						"ZenNode command: " + zennodeProcessBuilder.command() + ", exit code: " + zennodeExitCode);
 			}
-		} catch (IOException | InterruptedException | URISyntaxException e) {
+		} catch (IOException | InterruptedException e) {
 			throw new IllegalStateException(e);
 		}
 
 		try {
-			ByteBuffer byteBuffer = ByteBuffer.wrap(Files.readAllBytes(tempWadFile));
+			Files.move(tempWadFile, cachedWadFile, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			// Another build cached the same output in the meantime
+			if (!Files.exists(cachedWadFile)) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		return mapWadFile(cachedWadFile);
+	}
+
+	/**
+	 * The key of the output of ZenNode in the node cache: a hash of the input WAD
+	 * file, a hash of the ZenNode executable and a hash of its arguments
+	 *
+	 * @param wad
+	 * @return
+	 */
+	private static String getNodeCacheKey(Path wad) {
+		ByteBuffer wadByteBuffer = mapWadFile(wad);
+		byte[] zennode = Resources.getResourceAsBytes(ZENNODE);
+		String arguments = String.join(" ", ZENNODE_ARGUMENTS);
+		return String.format("%016x%016x%016x", hash64(wadByteBuffer), hash64(zennode),
+				hash64(toByteArray(arguments)));
+	}
+
+	private static ByteBuffer mapWadFile(Path path) {
+		try (FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.READ)) {
+			ByteBuffer byteBuffer = fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, fileChannel.size());
 			byteBuffer.order(ByteOrder.LITTLE_ENDIAN);
 			return byteBuffer;
 		} catch (IOException e) {
@@ -102,63 +261,120 @@ public class WadFile {
 	}
 
 	public void saveWadFile(ByteOrder byteOrder, String wadPath) {
-		int filepos = 4 + 4 + 4 + lumps.size() * (4 + 4 + 8);
-		int filesize = filepos + lumps.stream().mapToInt(Lump::length).sum();
+		Path path = Path.of("target", wadPath);
 
-		ByteBuffer byteBuffer = newByteBuffer(byteOrder, filesize);
+		long filesize;
+		try (FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			filesize = writeWadFile(byteOrder, fileChannel);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
 
-		byteBuffer.put(toByteArray("IWAD"));
-		byteBuffer.putShort(toShort(lumps.size()));
-		byteBuffer.putShort(toShort(0));
-		byteBuffer.putInt(4 + 4 + 4);
+		System.out.println("WAD file of size " + filesize + " written to " + path.toAbsolutePath());
+	}
+
+	/**
+	 * Write the header and the directory, followed by the data of the lumps
+	 * straight from the lumps themselves
+	 *
+	 * @param byteOrder
+	 * @param channel
+	 * @return the number of bytes written
+	 * @throws IOException
+	 */
+	public long writeWadFile(ByteOrder byteOrder, WritableByteChannel channel) throws IOException {
+		return writeWadFile(byteOrder, channel, OVERLAP_LUMPS);
+	}
+
+	long writeWadFile(ByteOrder byteOrder, WritableByteChannel channel, boolean overlapLumps) throws IOException {
+		int infotablesize = 4 + 4 + 4 + lumps.size() * (4 + 4 + 8);
 
 		// WAD lump merging
-		Map<String, Integer> duplicateDataMap = new HashMap<>();
+		List<ByteBuffer> uniqueDatas = new ArrayList<>();
+		int[] uniqueDataIndexes = new int[lumps.size()];
+		Map<Long, List<Integer>> duplicateDataMap = new HashMap<>();
 		int duplicateDataCount = 0;
 		for (int lumpnum = 0; lumpnum < lumps.size(); lumpnum++) {
 			Lump lump = lumps.get(lumpnum);
 			if (lump.length() == 0) {
-				byteBuffer.putInt(0);
+				uniqueDataIndexes[lumpnum] = -1;
 			} else {
-				String key = Arrays.toString(lump.data());
-				if (duplicateDataMap.containsKey(key)) {
-					int previousfilepos = duplicateDataMap.get(key);
-					byteBuffer.putInt(previousfilepos);
-					Lump newLump = new Lump(lump.name(), new byte[] {}, byteOrder);
-					lumps.set(lumpnum, newLump);
+				ByteBuffer data = lump.dataAsByteBuffer();
+				List<Integer> candidates = duplicateDataMap.computeIfAbsent(hash64(data), k -> new ArrayList<>(1));
+				Integer duplicate = candidates.stream().filter(c -> uniqueDatas.get(c).equals(data)).findFirst()
+						.orElse(null);
+				if (duplicate != null) {
+					uniqueDataIndexes[lumpnum] = duplicate;
 					duplicateDataCount++;
 				} else {
-					duplicateDataMap.put(key, filepos);
-					byteBuffer.putInt(filepos);
-					filepos += lump.length();
+					uniqueDataIndexes[lumpnum] = uniqueDatas.size();
+					candidates.add(uniqueDatas.size());
+					uniqueDatas.add(data);
 				}
 			}
+		}
+		System.out.println("Removed " + duplicateDataCount + " duplicate lumps");
+
+		LumpPacker.Layout layout;
+		if (overlapLumps) {
+			layout = LumpPacker.pack(uniqueDatas);
+			int uniqueDataSize = uniqueDatas.stream().mapToInt(ByteBuffer::remaining).sum();
+			System.out.println("Saved " + (uniqueDataSize - layout.size()) + " bytes by overlapping lumps");
+		} else {
+			layout = LumpPacker.concatenate(uniqueDatas);
+		}
+
+		ByteBuffer byteBuffer = newByteBuffer(byteOrder, infotablesize);
+
+		byteBuffer.put(toByteArray("IWAD"));
+		byteBuffer.putShort(toShort(lumps.size()));
+		byteBuffer.putShort(toShort(0));
+		byteBuffer.putInt(4 + 4 + 4);
+
+		for (int lumpnum = 0; lumpnum < lumps.size(); lumpnum++) {
+			Lump lump = lumps.get(lumpnum);
+			int uniqueDataIndex = uniqueDataIndexes[lumpnum];
+			if (uniqueDataIndex == -1) {
+				byteBuffer.putInt(0);
+			} else {
+				byteBuffer.putInt(infotablesize + layout.offsets()[uniqueDataIndex]);
+			}
 
 			byteBuffer.putShort(toShort(lump.length()));
 			byteBuffer.putShort(toShort(0));
 			byteBuffer.put(lump.name());
 		}
-		System.out.println("Removed " + duplicateDataCount + " duplicate lumps");
 
-		for (Lump lump : lumps) {
-			byteBuffer.put(lump.data());
-		}
+		List<ByteBuffer> byteBuffers = new ArrayList<>();
+		byteBuffer.flip();
+		byteBuffers.add(byteBuffer);
+		byteBuffers.addAll(layout.segments());
+		write(channel, byteBuffers.toArray(ByteBuffer[]::new));
 
-		Path path = Path.of("target", wadPath);
-		int filesizeWithoutDuplicates = 4 + 4 + 4 + lumps.size() * (4 + 4 + 8)
-				+ lumps.stream().mapToInt(Lump::length).sum();
+		return infotablesize + layout.size();
+	}
 
-		try {
-			Files.write(path, toArray(byteBuffer, filesizeWithoutDuplicates));
-		} catch (IOException e) {
-			throw new UncheckedIOException(e);
+	private static void write(WritableByteChannel channel, ByteBuffer[] byteBuffers) throws IOException {
+		if (channel instanceof GatheringByteChannel gatheringByteChannel) {
+			int offset = 0;
+			while (offset < byteBuffers.length) {
+				gatheringByteChannel.write(byteBuffers, offset, byteBuffers.length - offset);
+				while (offset < byteBuffers.length && !byteBuffers[offset].hasRemaining()) {
+					offset++;
+				}
+			}
+		} else {
+			for (ByteBuffer byteBuffer : byteBuffers) {
+				while (byteBuffer.hasRemaining()) {
+					channel.write(byteBuffer);
+				}
+			}
 		}
-
-		System.out.println("WAD file of size " + filesizeWithoutDuplicates + " written to " + path.toAbsolutePath());
 	}
 
 	public Lump getLumpByName(String name) {
-		List<Lump> lumpsWithName = lumps.stream().filter(l -> l.nameAsString().equalsIgnoreCase(name)).toList();
+		List<Lump> lumpsWithName = lumpsByName.getOrDefault(name.toUpperCase(), List.of());
 
 		if (lumpsWithName.size() != 1) {
 			throw new IllegalArgumentException("Found " + lumpsWithName.size() + " lumps with the name " + name);
@@ -168,29 +384,29 @@ public class WadFile {
 	}
 
 	public List<Lump> getLumpsByName(String prefix) {
-		return lumps.stream().filter(l -> l.nameAsString().startsWith(prefix)).toList();
+		return lumpsByName.subMap(prefix, prefix + Character.MAX_VALUE).values().stream().flatMap(List::stream)
+				.sorted(Comparator.comparingInt(this::getLumpNum)).toList();
 	}
 
 	public List<Lump> getLumpsBetween(String start, String end) {
 		int startIndex = getLumpNumByName(start);
 		int endIndex = getLumpNumByName(end);
-		return lumps.subList(startIndex + 1, endIndex);
+		return List.copyOf(lumps.subList(startIndex + 1, endIndex));
 	}
 
 	public int getLumpNumByName(String name) {
-		List<Integer> lumpNums = new ArrayList<>();
-		for (int index = 0; index < lumps.size(); index++) {
-			Lump lump = lumps.get(index);
-			if (lump.nameAsString().equalsIgnoreCase(name)) {
-				lumpNums.add(index);
-			}
-		}
+		return getLumpNum(getLumpByName(name));
+	}
 
-		if (lumpNums.size() != 1) {
-			throw new IllegalArgumentException("Found " + lumpNums.size() + " lumps with the name " + name);
+	private int getLumpNum(Lump lump) {
+		if (lumpNums == null) {
+			lumpNums = new IdentityHashMap<>(lumps.size());
+			for (int index = 0; index < lumps.size(); index++) {
+				lumpNums.put(lumps.get(index), index);
+			}
 		}
 
-		return lumpNums.get(0);
+		return lumpNums.get(lump);
 	}
 
 	public Lump getLumpByNum(int lumpnum) {
@@ -198,16 +414,38 @@ public class WadFile {
 	}
 
 	public void replaceLump(int lumpnum, Lump newLump) {
-		lumps.set(lumpnum, newLump);
+		Lump oldLump = lumps.set(lumpnum, newLump);
+		if (lumpNums != null) {
+			lumpNums.remove(oldLump);
+			lumpNums.put(newLump, lumpnum);
+		}
+
+		String oldName = oldLump.nameAsString();
+		String newName = newLump.nameAsString();
+		if (oldName.equals(newName)) {
+			List<Lump> lumpsWithName = lumpsByName.get(oldName);
+			lumpsWithName.set(indexOf(lumpsWithName, oldLump), newLump);
+		} else {
+			unindex(oldLump);
+
+			List<Lump> lumpsWithName = lumpsByName.computeIfAbsent(newName, k -> new ArrayList<>());
+			int index = 0;
+			while (index < lumpsWithName.size() && getLumpNum(lumpsWithName.get(index)) < lumpnum) {
+				index++;
+			}
+			lumpsWithName.add(index, newLump);
+		}
 	}
 
 	public void replaceLump(Lump newLump) {
 		int lumpnum = getLumpNumByName(newLump.nameAsString());
-		lumps.set(lumpnum, newLump);
+		replaceLump(lumpnum, newLump);
 	}
 
 	public void removeLump(int lumpnum) {
-		lumps.remove(lumpnum);
+		Lump lump = lumps.remove(lumpnum);
+		unindex(lump);
+		lumpNums = null;
 	}
 
 	public void removeLump(Lump lump) {
@@ -215,22 +453,70 @@ public class WadFile {
 	}
 
 	public void removeLump(String lumpname) {
-		int index = 0;
-		for (Lump lump : lumps) {
-			if (lump.nameAsString().equals(lumpname)) {
-				break;
-			}
-			index++;
+		List<Lump> lumpsWithName = lumpsByName.get(lumpname);
+		if (lumpsWithName == null) {
+			throw new IllegalArgumentException("Found 0 lumps with the name " + lumpname);
 		}
-		lumps.remove(index);
+
+		removeLump(getLumpNum(lumpsWithName.getFirst()));
 	}
 
 	public void removeLumps(String prefix) {
-		lumps.removeIf(l -> l.nameAsString().startsWith(prefix));
+		Map<String, List<Lump>> lumpsWithPrefix = lumpsByName.subMap(prefix, prefix + Character.MAX_VALUE);
+		if (lumpsWithPrefix.isEmpty()) {
+			return;
+		}
+
+		Set<Lump> lumpsToRemove = Collections.newSetFromMap(new IdentityHashMap<>());
+		lumpsWithPrefix.values().forEach(lumpsToRemove::addAll);
+		lumpsWithPrefix.clear();
+
+		lumps.removeIf(lumpsToRemove::contains);
+		lumpNums = null;
 	}
 
-	public void addLump(Lump lump) {
+	public final void addLump(Lump lump) {
 		lumps.add(lump);
+		lumpsByName.computeIfAbsent(lump.nameAsString(), k -> new ArrayList<>()).add(lump);
+		if (lumpNums != null) {
+			lumpNums.put(lump, lumps.size() - 1);
+		}
+	}
+
+	/**
+	 * Insert a lump before the lump with the lump number
+	 *
+	 * @param lumpnum
+	 * @param lump
+	 */
+	public void addLump(int lumpnum, Lump lump) {
+		lumps.add(lumpnum, lump);
+		lumpNums = null;
+
+		List<Lump> lumpsWithName = lumpsByName.computeIfAbsent(lump.nameAsString(), k -> new ArrayList<>());
+		int index = 0;
+		while (index < lumpsWithName.size() && getLumpNum(lumpsWithName.get(index)) < lumpnum) {
+			index++;
+		}
+		lumpsWithName.add(index, lump);
+	}
+
+	private void unindex(Lump lump) {
+		String name = lump.nameAsString();
+		List<Lump> lumpsWithName = lumpsByName.get(name);
+		lumpsWithName.remove(indexOf(lumpsWithName, lump));
+		if (lumpsWithName.isEmpty()) {
+			lumpsByName.remove(name);
+		}
+	}
+
+	private static int indexOf(List<Lump> lumpsWithName, Lump lump) {
+		for (int index = 0; index < lumpsWithName.size(); index++) {
+			if (lumpsWithName.get(index) == lump) {
+				return index;
+			}
+		}
+		throw new IllegalStateException("Lump " + lump.nameAsString() + " is not indexed");
 	}
 
 }
@@ -1,18 +1,25 @@
 package com.sfprod.jwadutil;
 
 import static com.sfprod.utils.ByteBufferUtils.newByteBuffer;
+import static com.sfprod.utils.HashUtils.hash64;
 import static com.sfprod.utils.NumberUtils.toInt;
 import static com.sfprod.utils.StringUtils.toByteArray;
 
-import java.io.IOException;
-import java.io.UncheckedIOException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.ToIntFunction;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 import com.sfprod.utils.ByteBufferUtils;
@@ -21,6 +28,56 @@ public abstract class WadProcessor {
 
 	public static final boolean FLAT_SPAN = true;
 
+	/**
+	 * Process the graphics in picture format on the common fork-join pool. Every
+	 * wall is shuffled with its own random number generator, so the shuffled
+	 * walls don't depend on the order of the threads, but they differ from the
+	 * walls shuffled sequentially.
+	 */
+	public static final boolean PARALLEL_PICTURES = false;
+
+	/**
+	 * Remove a sprite that is the mirror image of another sprite and add its
+	 * frame and rotation to the name of that sprite, like the sprites in the IWAD
+	 * file that are used for two rotations. Changes only the sprite lumps
+	 * themselves, the engine already reads the second frame and rotation.
+	 */
+	public static final boolean MIRROR_SPRITES = false;
+
+	/**
+	 * Compose every texture with more than one patch into a single patch at build
+	 * time instead of at runtime, see {@link TextureCompositor}. Textures with a
+	 * patch that is processed differently because of its name, see
+	 * {@link #isProcessedByName(String)}, are left alone. Textures with the same
+	 * composition share a composed patch, but columns are only shared between
+	 * patches when {@link #COLUMN_POOL} is on too.
+	 */
+	public static final boolean COMPOSITE_TEXTURES = false;
+
+	/**
+	 * Write the columns of all graphics in picture format to one lump, COLUMNS,
+	 * so columns are shared between graphics too. The column offsets of a
+	 * graphic are relative to the start of COLUMNS. Off until the engines can
+	 * draw graphics from a column pool.
+	 */
+	public static final boolean COLUMN_POOL = false;
+
+	/**
+	 * Walls processed in parallel are shuffled right away, unless their columns
+	 * are pooled first
+	 */
+	private static final boolean SHUFFLE_WALLS_WHILE_PROCESSING = PARALLEL_PICTURES && !COLUMN_POOL;
+
+	/**
+	 * Let a column of a graphic in picture format start inside another column
+	 * of the same graphic when its posts are the last posts of that column, like
+	 * blockmap stacking. Only the column offsets change, the columns stay the
+	 * same.
+	 */
+	public static final boolean SHARE_COLUMN_SUFFIXES = false;
+
+	protected static final long RANDOM_SEED = 0x1d4a11;
+
 	private static final String CREDITS = """
 			${title} by Frenkel Smeijers
 			based on
@@ -53,15 +110,18 @@ public abstract class WadProcessor {
 	private final MapProcessor mapProcessor;
 	protected final List<Color> vgaColors;
 	protected List<Color> availableColors;
+	private final ColumnDecimation columnDecimation;
 
-	protected WadProcessor(String title, ByteOrder byteOrder, WadFile wadFile) {
-		this(title, byteOrder, wadFile, new MapProcessor(byteOrder, wadFile));
+	protected WadProcessor(String title, ByteOrder byteOrder, WadFile wadFile, ColumnDecimation columnDecimation) {
+		this(title, byteOrder, wadFile, columnDecimation, new MapProcessor(byteOrder, wadFile));
 	}
 
-	protected WadProcessor(String title, ByteOrder byteOrder, WadFile wadFile, MapProcessor mapProcessor) {
+	protected WadProcessor(String title, ByteOrder byteOrder, WadFile wadFile,
+			ColumnDecimation columnDecimation, MapProcessor mapProcessor) {
 		this.byteOrder = byteOrder;
 		this.wadFile = wadFile;
 		this.mapProcessor = mapProcessor;
+		this.columnDecimation = columnDecimation;
 		this.vgaColors = createVgaColors(wadFile);
 		setAvailableColors(vgaColors);
 
@@ -106,12 +166,17 @@ public abstract class WadProcessor {
 	}
 
 	protected Lump getLump(String lumpname) {
-		try {
-			byte[] data = WadProcessor.class.getResourceAsStream('/' + lumpname + ".LMP").readAllBytes();
-			return new Lump(lumpname, data, ByteOrder.LITTLE_ENDIAN);
-		} catch (IOException e) {
-			throw new UncheckedIOException(e);
-		}
+		byte[] data = Resources.getResourceAsBytes('/' + lumpname + ".LMP");
+		return new Lump(lumpname, data, ByteOrder.LITTLE_ENDIAN);
+	}
+
+	/**
+	 * @param lumpname the name of a patch
+	 * @return true if the patch is processed differently because of its name, like
+	 *         the patches with a column decimation factor of their own
+	 */
+	protected boolean isProcessedByName(String lumpname) {
+		return columnDecimation.prefixes().keySet().stream().anyMatch(lumpname::startsWith);
 	}
 
 	protected void setAvailableColors(List<Color> availableColors) {
@@ -127,10 +192,17 @@ public abstract class WadProcessor {
 		processPlayerSprites();
 		removeUnusedLumps();
 		processSoundEffects();
-		processSprites();
-		processWalls();
-		compressPictures();
+		if (COMPOSITE_TEXTURES) {
+			new TextureCompositor(byteOrder, wadFile, this::isProcessedByName).composeTextures();
+		}
+		processPictures();
+		if (MIRROR_SPRITES) {
+			removeMirroredSprites(wadFile);
+		}
 
+		if (COLUMN_POOL) {
+			poolColumns(wadFile, byteOrder);
+		}
 		shuffleColors();
 		processRawGraphics();
 	}
@@ -367,292 +439,364 @@ public abstract class WadProcessor {
 		return new Lump(vanillaLump.name(), 2 + length * 2, doom8088Data);
 	}
 
-	private void processSprites() {
-		List<Lump> lumps = wadFile.getLumpsBetween("S_START", "S_END");
-		lumps.stream().map(this::processSprite).forEach(wadFile::replaceLump);
-	}
-
 	/**
-	 * Repeat every other column to cut the size in half
-	 *
-	 * @param vanillaLump
-	 * @return
+	 * Process the graphics in picture format. Every graphic is decoded once, its
+	 * colors are changed, its columns are repeated to cut the size and its
+	 * duplicate columns are removed before it is encoded once.
 	 */
-	private Lump processSprite(Lump vanillaLump) {
-		ByteBuffer vanillaData = vanillaLump.dataAsByteBuffer();
-		short width = vanillaData.getShort();
-		short height = vanillaData.getShort();
-		short leftoffset = vanillaData.getShort();
-		short topoffset = vanillaData.getShort();
-		List<Integer> columnofs = new ArrayList<>();
-		for (int columnof = 0; columnof < width; columnof++) {
-			columnofs.add(vanillaData.getInt());
-		}
+	private void processPictures() {
+		// Status bar, menu and intermission
+		processPictures(getStatusBarMenuAndIntermissionGraphics(wadFile),
+				this::changePaletteStatusBarMenuAndIntermission, l -> 1, false,
+				"status bar, menu and intermission graphics");
 
-		List<List<Byte>> columns = new ArrayList<>();
-		for (int columnof = 0; columnof < width; columnof++) {
-			// get column
-			List<Byte> column = new ArrayList<>();
-
-			vanillaData.position(columnofs.get(columnof));
-			byte topdelta = vanillaData.get();
-			column.add(topdelta);
-			while (topdelta != -1) {
-				byte lengthByte = vanillaData.get();
-				column.add(lengthByte);
-				int length = toInt(lengthByte);
-				for (int y = 0; y < length + 2; y++) {
-					column.add(vanillaData.get());
-				}
+		// Sprites
+		// By default every other column is repeated to cut the size in half
+		processPictures(wadFile.getLumpsBetween("S_START", "S_END"), this::changePaletteSprite,
+				columnDecimation::spriteFactor, false, "sprites");
 
-				topdelta = vanillaData.get();
-				column.add(topdelta);
-			}
+		// Walls
+		// By default every fourth column is repeated four times to leave a quarter of
+		// the size
+		processPictures(wadFile.getLumpsBetween("P1_START", "P1_END"), this::changePaletteWall,
+				columnDecimation::wallFactor, SHUFFLE_WALLS_WHILE_PROCESSING, "walls");
+	}
 
-			columns.add(column);
-		}
+	private static List<Lump> getStatusBarMenuAndIntermissionGraphics(WadFile wadFile) {
+		List<Lump> statusBarMenuAndIntermissionGraphics = new ArrayList<>(256);
+		// Status bar
+		statusBarMenuAndIntermissionGraphics.addAll(wadFile.getLumpsByName("STC"));
+		statusBarMenuAndIntermissionGraphics.addAll(wadFile.getLumpsByName("STF"));
+		statusBarMenuAndIntermissionGraphics.addAll(wadFile.getLumpsByName("STG"));
+		statusBarMenuAndIntermissionGraphics.addAll(wadFile.getLumpsByName("STK"));
+		statusBarMenuAndIntermissionGraphics.addAll(wadFile.getLumpsByName("STY"));
+		// Menu
+		statusBarMenuAndIntermissionGraphics.addAll(wadFile.getLumpsByName("M_"));
+		// Intermission
+		statusBarMenuAndIntermissionGraphics.addAll(
+				wadFile.getLumpsByName("WI").stream().filter(l -> !"WIMAP0".equals(l.nameAsString())).toList());
 
-		ByteBuffer doom8088Data = newByteBuffer(byteOrder);
-		doom8088Data.putShort(width);
-		doom8088Data.putShort(height);
-		doom8088Data.putShort(leftoffset);
-		doom8088Data.putShort(topoffset);
+		return statusBarMenuAndIntermissionGraphics;
+	}
 
-		// temp offset values
-		for (int columnof = 0; columnof < width; columnof++) {
-			doom8088Data.putInt(-1);
+	private void processPictures(List<Lump> lumps, BiConsumer<Lump, Picture> changePalette,
+			ToIntFunction<Lump> columnStep, boolean shuffle, String description) {
+		LongAdder bytesSaved = new LongAdder();
+		LongAdder suffixBytesSaved = new LongAdder();
+		Stream<Lump> pictures = PARALLEL_PICTURES ? lumps.parallelStream() : lumps.stream();
+		pictures.map(l -> processPicture(l, changePalette, columnStep.applyAsInt(l), shuffle, bytesSaved,
+				suffixBytesSaved)).toList().forEach(wadFile::replaceLump);
+
+		if (bytesSaved.sum() != 0) {
+			System.out.println("Saved " + bytesSaved.sum() + " bytes by repeating columns of " + description);
+		}
+		if (suffixBytesSaved.sum() != 0) {
+			System.out.println(
+					"Saved " + suffixBytesSaved.sum() + " bytes by sharing column suffixes of " + description);
 		}
+	}
 
-		int l = width / 2;
-		int c = 0;
-		while (l-- != 0) {
-			columnofs.set(c + 0, doom8088Data.position());
-			columnofs.set(c + 1, doom8088Data.position());
-			List<Byte> column = columns.get(c);
-			for (byte b : column) {
-				doom8088Data.put(b);
+	/**
+	 * Find sprites that look like another sprite of the same thing drawn flipped,
+	 * after their colors have been changed and their columns have been repeated.
+	 * A sprite name with one frame and rotation, like TROOA2, can get a second
+	 * frame and rotation that the engine draws flipped, like TROOA2A8.
+	 *
+	 * @param wadFile
+	 */
+	static void removeMirroredSprites(WadFile wadFile) {
+		List<Lump> sprites = wadFile.getLumpsBetween("S_START", "S_END").stream()
+				.filter(l -> l.nameAsString().length() == 6 && l.nameAsString().charAt(5) != '0').toList();
+
+		Set<Lump> mirroredSprites = Collections.newSetFromMap(new IdentityHashMap<>());
+		int count = 0;
+		for (Lump sprite : sprites) {
+			if (mirroredSprites.contains(sprite)) {
+				continue;
 			}
-			c += 2;
-		}
 
-		switch (width & 1) {
-		case 1:
-			columnofs.set(c, doom8088Data.position());
-			for (byte b : columns.get(c)) {
-				doom8088Data.put(b);
+			Picture picture = Picture.read(sprite);
+			String name = sprite.nameAsString();
+			Lump mirroredSprite = sprites.stream()
+					.filter(s -> s != sprite && !mirroredSprites.contains(s)
+							&& s.nameAsString().startsWith(name.substring(0, 4))
+							&& isMirrored(picture, Picture.read(s)))
+					.findFirst().orElse(null);
+			if (mirroredSprite != null) {
+				mirroredSprites.add(sprite);
+				mirroredSprites.add(mirroredSprite);
+
+				String newName = name + mirroredSprite.nameAsString().substring(4);
+				wadFile.replaceLump(wadFile.getLumpNumByName(name),
+						new Lump(newName, sprite.data(), sprite.byteOrder()));
+				wadFile.removeLump(mirroredSprite);
+				count++;
 			}
 		}
 
-		int size = doom8088Data.position();
+		System.out.println("Removed " + count + " mirrored sprites");
+	}
 
-		doom8088Data.position(8);
-		for (int columnof : columnofs) {
-			doom8088Data.putInt(columnof);
+	/**
+	 * @param picture
+	 * @param otherPicture
+	 * @return true if the engine draws the other picture exactly like the picture
+	 *         drawn flipped
+	 */
+	private static boolean isMirrored(Picture picture, Picture otherPicture) {
+		short width = picture.width();
+		if (width != otherPicture.width() || picture.height() != otherPicture.height()
+				|| picture.leftoffset() != otherPicture.leftoffset()
+				|| picture.topoffset() != otherPicture.topoffset()) {
+			return false;
 		}
 
-		return new Lump(vanillaLump.name(), size, doom8088Data);
+		for (int column = 0; column < width; column++) {
+			int mirroredColumn = width - 1 - column;
+			int columnof = picture.columnof(mirroredColumn);
+			int otherColumnof = otherPicture.columnof(column);
+			if (!Arrays.equals(picture.data(), columnof, columnof + picture.columnLength(mirroredColumn),
+					otherPicture.data(), otherColumnof, otherColumnof + otherPicture.columnLength(column))) {
+				return false;
+			}
+		}
+		return true;
 	}
 
-	private void processWalls() {
-		List<Lump> lumps = wadFile.getLumpsBetween("P1_START", "P1_END");
-		lumps.stream().map(this::processWall).forEach(wadFile::replaceLump);
+	/**
+	 * Change the colors of a sprite in picture format
+	 *
+	 * @param lump
+	 * @param picture a copy of the sprite, to be changed in place
+	 */
+	protected void changePaletteSprite(Lump lump, Picture picture) {
 	}
 
 	/**
-	 * Repeat every fourth column four times to leave a quarter of the size
+	 * Change the colors of a wall in picture format
 	 *
-	 * @param vanillaLump
-	 * @return
+	 * @param lump
+	 * @param picture a copy of the wall, to be changed in place
 	 */
-	private Lump processWall(Lump vanillaLump) {
-		ByteBuffer vanillaData = vanillaLump.dataAsByteBuffer();
-		short width = vanillaData.getShort();
-		short height = vanillaData.getShort();
-		short leftoffset = vanillaData.getShort();
-		short topoffset = vanillaData.getShort();
-		List<Integer> columnofs = new ArrayList<>();
-		for (int columnof = 0; columnof < width; columnof++) {
-			columnofs.add(vanillaData.getInt());
-		}
-
-		List<List<Byte>> columns = new ArrayList<>();
-		for (int columnof = 0; columnof < width; columnof++) {
-			// get column
-			List<Byte> column = new ArrayList<>();
-
-			vanillaData.position(columnofs.get(columnof));
-			byte topdelta = vanillaData.get();
-			column.add(topdelta);
-			while (topdelta != -1) {
-				byte lengthByte = vanillaData.get();
-				column.add(lengthByte);
-				int length = toInt(lengthByte);
-				for (int y = 0; y < length + 2; y++) {
-					column.add(vanillaData.get());
-				}
-
-				topdelta = vanillaData.get();
-				column.add(topdelta);
-			}
-
-			columns.add(column);
-		}
-
-		ByteBuffer doom8088Data = newByteBuffer(byteOrder);
-		doom8088Data.putShort(width);
-		doom8088Data.putShort(height);
-		doom8088Data.putShort(leftoffset);
-		doom8088Data.putShort(topoffset);
+	protected void changePaletteWall(Lump lump, Picture picture) {
+	}
 
-		// temp offset values
-		for (int i = 0; i < width; i++) {
-			doom8088Data.putInt(-1);
-		}
+	/**
+	 * Change the colors of a status bar, menu or intermission graphic in picture
+	 * format
+	 *
+	 * @param lump
+	 * @param picture a copy of the graphic, to be changed in place
+	 */
+	protected void changePaletteStatusBarMenuAndIntermission(Lump lump, Picture picture) {
+	}
 
-		int l = width / 4;
-		int c = 0;
-		while (l-- != 0) {
-			columnofs.set(c + 0, doom8088Data.position());
-			columnofs.set(c + 1, doom8088Data.position());
-			columnofs.set(c + 2, doom8088Data.position());
-			columnofs.set(c + 3, doom8088Data.position());
-			List<Byte> column = columns.get(c);
-			for (byte b : column) {
-				doom8088Data.put(b);
-			}
-			c += 4;
+	/**
+	 * Shuffle the colors of the walls in picture format, unless they have been
+	 * shuffled while they were processed. Every column in the column pool is
+	 * shuffled once, so the graphics that share a column keep sharing it.
+	 *
+	 * @param random
+	 */
+	protected final void shuffleColorsWalls(Random random) {
+		if (SHUFFLE_WALLS_WHILE_PROCESSING) {
+			return;
 		}
 
-		switch (width & 3) {
-		case 3:
-			columnofs.set(c + 0, doom8088Data.position());
-			columnofs.set(c + 1, doom8088Data.position());
-			columnofs.set(c + 2, doom8088Data.position());
-			for (byte b : columns.get(c)) {
-				doom8088Data.put(b);
-			}
-			break;
-		case 2:
-			columnofs.set(c + 0, doom8088Data.position());
-			columnofs.set(c + 1, doom8088Data.position());
-			for (byte b : columns.get(c)) {
-				doom8088Data.put(b);
-			}
-			break;
-		case 1:
-			columnofs.set(c + 0, doom8088Data.position());
-			for (byte b : columns.get(c)) {
-				doom8088Data.put(b);
+		List<Lump> walls = wadFile.getLumpsBetween("P1_START", "P1_END");
+		if (COLUMN_POOL) {
+			Lump columnPool = wadFile.getLumpByName("COLUMNS");
+			Set<Integer> shuffledColumnofs = new HashSet<>();
+			for (Lump wall : walls) {
+				Picture picture = Picture.read(wall, columnPool);
+				for (int column = 0; column < picture.width(); column++) {
+					if (shuffledColumnofs.add(picture.columnof(column))) {
+						shuffleColorsColumn(picture, column, random);
+					}
+				}
 			}
+		} else {
+			walls.forEach(l -> shuffleColorsWall(Picture.read(l), random));
 		}
+	}
 
-		int size = doom8088Data.position();
-
-		doom8088Data.position(8);
-		for (int columnof : columnofs) {
-			doom8088Data.putInt(columnof);
+	private void shuffleColorsWall(Picture picture, Random random) {
+		for (int column = 0; column < picture.width(); column++) {
+			shuffleColorsColumn(picture, column, random);
 		}
+	}
 
-		return new Lump(vanillaLump.name(), size, doom8088Data);
+	private void shuffleColorsColumn(Picture picture, int column, Random random) {
+		picture.forEachPost(column,
+				(topdelta, offset, length) -> shuffleColors(picture.data(), offset - 1, offset + length + 1, random));
 	}
 
 	/**
-	 * Remove duplicate columns in graphics in picture format
+	 * Replace every color by a random color that looks the same, in place
 	 *
+	 * @param data
+	 * @param from   inclusive
+	 * @param to     exclusive
+	 * @param random
 	 */
-	private void compressPictures() {
-		List<Lump> pictures = new ArrayList<>(256);
-		// Status bar
-		pictures.addAll(wadFile.getLumpsByName("STC"));
-		pictures.addAll(wadFile.getLumpsByName("STF"));
-		pictures.addAll(wadFile.getLumpsByName("STG"));
-		pictures.addAll(wadFile.getLumpsByName("STK"));
-		pictures.addAll(wadFile.getLumpsByName("STY"));
-		// Menu
-		pictures.addAll(wadFile.getLumpsByName("M_"));
-		// Intermission
-		pictures.addAll(wadFile.getLumpsByName("WI").stream().filter(l -> !"WIMAP0".equals(l.nameAsString())).toList());
-		// Sprites
-		pictures.addAll(wadFile.getLumpsBetween("S_START", "S_END"));
-		// Walls
-		pictures.addAll(wadFile.getLumpsBetween("P1_START", "P1_END"));
-		pictures.stream().map(this::compressPicture).forEach(wadFile::replaceLump);
+	protected void shuffleColors(byte[] data, int from, int to, Random random) {
+	}
+
+	/**
+	 * @param lump
+	 * @return a random number generator for the lump that doesn't depend on the
+	 *         order the lumps are processed in
+	 */
+	private static Random createRandom(Lump lump) {
+		return new Random(RANDOM_SEED ^ hash64(lump.name()));
 	}
 
 	/**
-	 * Graphic squashing
+	 * Change the colors, repeat the first column of every columnStep columns
+	 * columnStep times, squash the graphic and optionally shuffle its colors
 	 *
-	 * @param picture
+	 * @param vanillaLump
+	 * @param changePalette
+	 * @param columnStep
+	 * @param shuffle
+	 * @param bytesSaved       the number of bytes saved by repeating columns is
+	 *                         added to this
+	 * @param suffixBytesSaved the number of bytes saved by sharing column
+	 *                         suffixes is added to this
 	 * @return
 	 */
-	private Lump compressPicture(Lump picture) {
-		ByteBuffer pictureData = picture.dataAsByteBuffer();
-		short width = pictureData.getShort();
-		short height = pictureData.getShort();
-		short leftoffset = pictureData.getShort();
-		short topoffset = pictureData.getShort();
-		List<Integer> columnofs = new ArrayList<>();
-		for (int columnof = 0; columnof < width; columnof++) {
-			columnofs.add(pictureData.getInt());
+	private Lump processPicture(Lump vanillaLump, BiConsumer<Lump, Picture> changePalette, int columnStep,
+			boolean shuffle, LongAdder bytesSaved, LongAdder suffixBytesSaved) {
+		Picture picture = Picture.copyOf(vanillaLump);
+		changePalette.accept(vanillaLump, picture);
+
+		short width = picture.width();
+		int[] columnofs = new int[width];
+
+		ByteBuffer doom8088Data = newByteBuffer(byteOrder);
+		picture.putHeader(doom8088Data);
+
+		IntStream columns = IntStream.range(0, width);
+		if (SHARE_COLUMN_SUFFIXES) {
+			// longest columns first, so a column comes after the columns it can end
+			Comparator<Integer> byColumnLength = Comparator
+					.comparingInt(i -> picture.columnLength(i - i % columnStep));
+			columns = columns.boxed().sorted(byColumnLength.reversed()).mapToInt(Integer::intValue);
 		}
 
-		List<List<Byte>> columns = new ArrayList<>();
-		for (int columnof = 0; columnof < width; columnof++) {
-			// get column
-			List<Byte> column = new ArrayList<>();
-
-			pictureData.position(columnofs.get(columnof));
-			byte topdelta = pictureData.get();
-			column.add(topdelta);
-			while (topdelta != -1) {
-				byte lengthByte = pictureData.get();
-				column.add(lengthByte);
-				int length = toInt(lengthByte);
-				for (int y = 0; y < length + 2; y++) {
-					column.add(pictureData.get());
-				}
+		ColumnDictionary persistedColumns = new ColumnDictionary(width);
+		for (int i : columns.toArray()) {
+			int repeatedColumn = i - i % columnStep;
+			int persistedColumnof = persistedColumns.putIfAbsent(picture.data(), picture.columnof(repeatedColumn),
+					picture.columnLength(repeatedColumn), doom8088Data.position());
+			if (persistedColumnof != -1) {
+				columnofs[i] = persistedColumnof;
+			} else {
+				columnofs[i] = doom8088Data.position();
 
-				topdelta = pictureData.get();
-				column.add(topdelta);
+				picture.putColumn(doom8088Data, repeatedColumn);
+
+				if (SHARE_COLUMN_SUFFIXES) {
+					putSuffixes(picture, repeatedColumn, columnofs[i], persistedColumns);
+				}
 			}
+		}
+
+		int size = doom8088Data.position();
+		int sizeWithoutSuffixes = SHARE_COLUMN_SUFFIXES ? squashedSize(picture, columnStep) : size;
 
-			columns.add(column);
+		if (columnStep != 1) {
+			bytesSaved.add(squashedSize(picture, 1) - sizeWithoutSuffixes);
 		}
+		suffixBytesSaved.add(sizeWithoutSuffixes - size);
 
-		ByteBuffer compressedData = newByteBuffer(byteOrder);
-		compressedData.putShort(width);
-		compressedData.putShort(height);
-		compressedData.putShort(leftoffset);
-		compressedData.putShort(topoffset);
+		Picture.putColumnofs(doom8088Data, columnofs);
 
-		// temp offset values
-		for (int columnof = 0; columnof < width; columnof++) {
-			compressedData.putInt(-1);
+		Lump newLump = new Lump(vanillaLump.name(), size, doom8088Data);
+		if (shuffle) {
+			shuffleColorsWall(Picture.read(newLump), createRandom(newLump));
 		}
+		return newLump;
+	}
 
-		Map<List<Byte>, Integer> persistedColumns = new HashMap<>();
-		for (int i = 0; i < width; i++) {
-			List<Byte> column = columns.get(i);
-			if (persistedColumns.containsKey(column)) {
-				columnofs.set(i, persistedColumns.get(column));
-			} else {
-				columnofs.set(i, compressedData.position());
-				persistedColumns.put(column, compressedData.position());
+	/**
+	 * @param picture
+	 * @param columnStep
+	 * @return the size of the picture when it's squashed without sharing column
+	 *         suffixes
+	 */
+	private static int squashedSize(Picture picture, int columnStep) {
+		int size = Picture.HEADER_SIZE + picture.width() * 4;
+		ColumnDictionary persistedColumns = new ColumnDictionary(picture.width());
+		for (int i = 0; i < picture.width(); i++) {
+			int repeatedColumn = i - i % columnStep;
+			int columnLength = picture.columnLength(repeatedColumn);
+			if (persistedColumns.putIfAbsent(picture.data(), picture.columnof(repeatedColumn), columnLength,
+					size) == -1) {
+				size += columnLength;
+			}
+		}
+		return size;
+	}
 
-				for (byte b : column) {
-					compressedData.put(b);
+	/**
+	 * Add the columns that start at the second and later posts of a column to
+	 * the dictionary
+	 *
+	 * @param picture
+	 * @param column
+	 * @param columnof         the offset of the column in the output
+	 * @param persistedColumns
+	 */
+	static void putSuffixes(Picture picture, int column, int columnof, ColumnDictionary persistedColumns) {
+		int start = picture.columnof(column);
+		int end = start + picture.columnLength(column);
+		picture.forEachPost(column, (topdelta, offset, length) -> {
+			int suffix = offset + length + 1;
+			persistedColumns.putIfAbsent(picture.data(), suffix, end - suffix, columnof + suffix - start);
+		});
+	}
+
+	/**
+	 * Move the columns of all graphics in picture format to a column pool.
+	 * Graphics with the same column share it.
+	 *
+	 * @param wadFile
+	 * @param byteOrder
+	 */
+	static void poolColumns(WadFile wadFile, ByteOrder byteOrder) {
+		List<Lump> pictures = new ArrayList<>(getStatusBarMenuAndIntermissionGraphics(wadFile));
+		pictures.addAll(wadFile.getLumpsBetween("S_START", "S_END"));
+		pictures.addAll(wadFile.getLumpsBetween("P1_START", "P1_END"));
+
+		ByteBuffer columnPool = newByteBuffer(byteOrder, pictures.stream().mapToInt(Lump::length).sum());
+		ColumnDictionary persistedColumns = new ColumnDictionary(pictures.size() * 16);
+		for (Lump lump : pictures) {
+			Picture picture = Picture.read(lump);
+			short width = picture.width();
+			int[] columnofs = new int[width];
+
+			ByteBuffer pictureData = newByteBuffer(byteOrder, Picture.HEADER_SIZE + width * 4);
+			picture.putHeader(pictureData);
+
+			for (int i = 0; i < width; i++) {
+				int persistedColumnof = persistedColumns.putIfAbsent(picture.data(), picture.columnof(i),
+						picture.columnLength(i), columnPool.position());
+				if (persistedColumnof != -1) {
+					columnofs[i] = persistedColumnof;
+				} else {
+					columnofs[i] = columnPool.position();
+
+					picture.putColumn(columnPool, i);
 				}
 			}
-		}
 
-		int size = compressedData.position();
+			Picture.putColumnofs(pictureData, columnofs);
 
-		compressedData.position(8);
-		for (int columnof : columnofs) {
-			compressedData.putInt(columnof);
+			wadFile.replaceLump(new Lump(lump.name(), pictureData));
 		}
 
-		return new Lump(picture.name(), size, compressedData);
+		wadFile.addLump(new Lump(toByteArray("COLUMNS", 8), columnPool.position(), columnPool));
 	}
 
 	private static record Mappatch(short originx, short originy, short patch, short stepdir, short colormap) {
@@ -10,8 +10,8 @@ public abstract class WadProcessor16ColorsDithered extends WadProcessorLimitedCo
 			0x70, 0x78, 0x87, 0x77, 0x77, 0x0f, 0xf0, 0x8f, 0xf8, 0x7f, 0xf7, 0xff, 0xff, 0xff);
 
 	protected WadProcessor16ColorsDithered(String title, ByteOrder byteOrder, WadFile wadFile,
-			List<Color> sixteenColors, int divisor) {
-		super(title, byteOrder, wadFile, GRAYSCALE_FROM_DARK_TO_BRIGHT, divisor);
+			ColumnDecimation columnDecimation, List<Color> sixteenColors, int divisor) {
+		super(title, byteOrder, wadFile, columnDecimation, GRAYSCALE_FROM_DARK_TO_BRIGHT, divisor);
 
 		List<Color> colors = new ArrayList<>();
 		for (int h = 0; h < 16; h++) {
@@ -40,8 +40,6 @@ public abstract class WadProcessor16ColorsDithered extends WadProcessorLimitedCo
 	}
 
 	private void shuffleColorsRaw(Lump lump) {
-		for (int i = 0; i < lump.length(); i++) {
-			lump.data()[i] = shuffleColor(lump.data()[i]);
-		}
+		shuffleColors(lump.data(), 0, lump.length(), random);
 	}
 }
@@ -4,15 +4,10 @@ import static com.sfprod.utils.NumberUtils.reverse;
 import static com.sfprod.utils.NumberUtils.toByte;
 import static com.sfprod.utils.NumberUtils.toInt;
 
-import java.awt.image.BufferedImage;
-import java.io.IOException;
-import java.io.UncheckedIOException;
 import java.nio.ByteOrder;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.function.UnaryOperator;
-
-import javax.imageio.ImageIO;
+import java.util.function.IntUnaryOperator;
 
 import com.sfprod.utils.ByteBufferUtils;
 
@@ -28,7 +23,7 @@ public abstract class WadProcessor4Colors extends WadProcessorLimitedColors {
 			new Color(0xFF, 0xFF, 0xFF) // white
 	);
 
-	private static final List<Integer> VGA256_TO_4_LUT = List.of( //
+	private static final PaletteMapper VGA256_TO_4_LUT = PaletteMapper.of( //
 			0, 0, 0, // black
 			1, // gray
 			3, // white
@@ -66,7 +61,7 @@ public abstract class WadProcessor4Colors extends WadProcessorLimitedColors {
 			-1 // cream-colored
 	);
 
-	private static final List<Integer> VGA256_TO_BYTE_LUT = List.of( //
+	private static final PaletteMapper VGA256_TO_BYTE_LUT = PaletteMapper.of( //
 			0x00, 0x00, 0x00, // black
 			0x33, // gray
 			0xff, // white
@@ -110,9 +105,9 @@ public abstract class WadProcessor4Colors extends WadProcessorLimitedColors {
 	private final boolean invert;
 	private final boolean mostSignificantBitFirst;
 
-	protected WadProcessor4Colors(String title, ByteOrder byteOrder, WadFile wadFile, boolean invert,
-			boolean mostSignificantBitFirst) {
-		super(title, byteOrder, wadFile,
+	protected WadProcessor4Colors(String title, ByteOrder byteOrder, WadFile wadFile,
+			ColumnDecimation columnDecimation, boolean invert, boolean mostSignificantBitFirst) {
+		super(title, byteOrder, wadFile, columnDecimation,
 				invert ? GRAYSCALE_FROM_DARK_TO_BRIGHT.reversed() : GRAYSCALE_FROM_DARK_TO_BRIGHT, 3);
 		this.invert = invert;
 		this.mostSignificantBitFirst = mostSignificantBitFirst;
@@ -137,21 +132,16 @@ public abstract class WadProcessor4Colors extends WadProcessorLimitedColors {
 		return toByte(~b & 0xff);
 	}
 
-	private Integer invert(Integer i) {
-		return toInt(invert(toByte(i)));
-	}
-
 	@Override
-	protected List<Integer> createVga256toByteLUT(List<Color> availableCols) {
-		return invert ? VGA256_TO_BYTE_LUT.stream().map(this::invert).toList() : VGA256_TO_BYTE_LUT;
+	protected PaletteMapper createVga256toByteLUT(List<Color> availableCols) {
+		return invert ? VGA256_TO_BYTE_LUT.map(i -> toInt(invert(toByte(i)))) : VGA256_TO_BYTE_LUT;
 	}
 
 	@Override
-	protected List<Integer> createVga256toSingleColorLUT(List<Integer> vga256toByteLUT) {
-		UnaryOperator<Integer> invertFunction = invert ? i -> (i == -1 ? -1 : 3 - i) : i -> i;
-		UnaryOperator<Integer> mostSignificantBitFirstFunction = mostSignificantBitFirst ? i -> (i == -1 ? -1 : i << 6)
-				: i -> i;
-		return VGA256_TO_4_LUT.stream().map(invertFunction).map(mostSignificantBitFirstFunction).toList();
+	protected PaletteMapper createVga256toSingleColorLUT(PaletteMapper vga256toByteLUT) {
+		IntUnaryOperator invertFunction = invert ? i -> 3 - i : i -> i;
+		IntUnaryOperator mostSignificantBitFirstFunction = mostSignificantBitFirst ? i -> i << 6 : i -> i;
+		return VGA256_TO_4_LUT.map(invertFunction.andThen(mostSignificantBitFirstFunction));
 	}
 
 	@Override
@@ -168,30 +158,13 @@ public abstract class WadProcessor4Colors extends WadProcessorLimitedColors {
 	}
 
 	private Lump createCgaLump(String lumpname) {
-		List<Integer> rgbs = CGA_COLORS.stream().map(Color::getRGB).toList();
-
-		try {
-			BufferedImage image = ImageIO
-					.read(WadProcessor4Colors.class.getResourceAsStream("/CGA/" + lumpname + ".PNG"));
-			byte[] data = new byte[(image.getWidth() / 4) * image.getHeight()];
-			int i = 0;
-			for (int y = 0; y < image.getHeight(); y++) {
-				for (int x = 0; x < image.getWidth() / 4; x++) {
-					byte b = 0;
-					for (int p = 0; p < 4; p++) {
-						int rgb = image.getRGB(x * 4 + p, y);
-						int rgbIndex = rgbs.indexOf(rgb);
-						assert 0 <= rgbIndex && rgbIndex < 4;
-						b = toByte((b << 2) | rgbIndex);
-					}
-					data[i] = invert ? invert(b) : b;
-					i++;
-				}
+		byte[] data = IndexedImage.read("/CGA/" + lumpname + ".PNG", CGA_COLORS).pack(PixelPacking.TWO_BITS);
+		if (invert) {
+			for (int i = 0; i < data.length; i++) {
+				data[i] = invert(data[i]);
 			}
-			return new Lump(lumpname, data, ByteBufferUtils.DONT_CARE);
-		} catch (IOException e) {
-			throw new UncheckedIOException(e);
 		}
+		return new Lump(lumpname, data, ByteBufferUtils.DONT_CARE);
 	}
 
 }
@@ -22,12 +22,12 @@ public class WadProcessorDoomtd3 extends WadProcessor {
 			"CBRA", "ELEC" //
 	);
 
-	private final Random random = new Random(0x1d4a11);
+	private final Random random = new Random(RANDOM_SEED);
 
 	private final List<List<Integer>> listsOfBits;
 
-	WadProcessorDoomtd3(String title, ByteOrder byteOrder, WadFile wadFile) {
-		super(title, byteOrder, wadFile);
+	WadProcessorDoomtd3(String title, ByteOrder byteOrder, WadFile wadFile, ColumnDecimation columnDecimation) {
+		super(title, byteOrder, wadFile, columnDecimation);
 		wadFile.addLump(getLump("CACHE"));
 
 		this.listsOfBits = new ArrayList<>();
@@ -20,34 +20,46 @@ public interface WadProcessorFactory {
 
 	static WadProcessor getWadProcessor(Game game, WadFile wadFile) {
 		return switch (game) {
-		case DOOM8088, ELKSDOOM -> new WadProcessor256ColorsPC(game.getTitle(), game.getByteOrder(), wadFile);
+		case DOOM8088, ELKSDOOM ->
+			new WadProcessor256ColorsPC(game.getTitle(), game.getByteOrder(), wadFile, game.getColumnDecimation());
 		case DOOM8088_2_COLOR_TEXT_MODE ->
-			new WadProcessor2ColorsTextMode(game.getTitle(), game.getByteOrder(), wadFile);
-		case DOOM8088_4_COLOR -> new WadProcessor4ColorsPC(game.getTitle(), game.getByteOrder(), wadFile);
+			new WadProcessor2ColorsTextMode(game.getTitle(), game.getByteOrder(), wadFile, game.getColumnDecimation());
+		case DOOM8088_4_COLOR ->
+			new WadProcessor4ColorsPC(game.getTitle(), game.getByteOrder(), wadFile, game.getColumnDecimation());
 		case DOOM8088_ARCHIMEDES_2_COLOR ->
-			new WadProcessor2ColorsArchimedes(game.getTitle(), game.getByteOrder(), wadFile);
+			new WadProcessor2ColorsArchimedes(game.getTitle(), game.getByteOrder(), wadFile,
+					game.getColumnDecimation());
 		case DOOM8088_ARCHIMEDES_256_COLOR ->
-			new WadProcessor256ColorsArchimedes(game.getTitle(), game.getByteOrder(), wadFile);
-		case DOOM8088_AMIGA_2_COLOR -> new WadProcessor2ColorsAmiga(game.getTitle(), game.getByteOrder(), wadFile);
+			new WadProcessor256ColorsArchimedes(game.getTitle(), game.getByteOrder(), wadFile,
+					game.getColumnDecimation());
+		case DOOM8088_AMIGA_2_COLOR ->
+			new WadProcessor2ColorsAmiga(game.getTitle(), game.getByteOrder(), wadFile, game.getColumnDecimation());
 		case DOOM8088_AMIGA_16_COLOR ->
-			new WadProcessor16ColorsDitheredAmiga(game.getTitle(), game.getByteOrder(), wadFile);
+			new WadProcessor16ColorsDitheredAmiga(game.getTitle(), game.getByteOrder(), wadFile,
+					game.getColumnDecimation());
 		case DOOM8088_AT_T_UNIX_PC_2_COLOR ->
-			new WadProcessor2ColorsAttUnixPC(game.getTitle(), game.getByteOrder(), wadFile);
-		case DOOM8088_ATARI_ST_2_COLOR -> new WadProcessor2ColorsAtariST(game.getTitle(), game.getByteOrder(), wadFile);
+			new WadProcessor2ColorsAttUnixPC(game.getTitle(), game.getByteOrder(), wadFile, game.getColumnDecimation());
+		case DOOM8088_ATARI_ST_2_COLOR ->
+			new WadProcessor2ColorsAtariST(game.getTitle(), game.getByteOrder(), wadFile, game.getColumnDecimation());
 		case DOOM8088_ATARI_ST_16_COLOR ->
-			new WadProcessor16ColorsDitheredAtariST(game.getTitle(), game.getByteOrder(), wadFile);
+			new WadProcessor16ColorsDitheredAtariST(game.getTitle(), game.getByteOrder(), wadFile,
+					game.getColumnDecimation());
 		case DOOM8088_MACINTOSH_2_COLOR ->
-			new WadProcessor2ColorsMacintosh(game.getTitle(), game.getByteOrder(), wadFile);
+			new WadProcessor2ColorsMacintosh(game.getTitle(), game.getByteOrder(), wadFile, game.getColumnDecimation());
 		case DOOM8088_SINCLAIR_QL_2_COLOR ->
-			new WadProcessor2ColorsSinclairQL(game.getTitle(), game.getByteOrder(), wadFile);
+			new WadProcessor2ColorsSinclairQL(game.getTitle(), game.getByteOrder(), wadFile,
+					game.getColumnDecimation());
 		case DOOM8088_SINCLAIR_QL_8_COLOR ->
-			new WadProcessor8ColorsSinclairQL(game.getTitle(), game.getByteOrder(), wadFile);
+			new WadProcessor8ColorsSinclairQL(game.getTitle(), game.getByteOrder(), wadFile,
+					game.getColumnDecimation());
 		case DOOM8088_16_COLOR_DITHERED ->
-			new WadProcessor16ColorsDitheredPC(game.getTitle(), game.getByteOrder(), wadFile);
+			new WadProcessor16ColorsDitheredPC(game.getTitle(), game.getByteOrder(), wadFile,
+					game.getColumnDecimation());
 		case DOOM8088_16_COLOR_DITHERED_TEXT_MODE ->
-			new WadProcessor16ColorsDitheredTextMode(game.getTitle(), game.getByteOrder(), wadFile);
+			new WadProcessor16ColorsDitheredTextMode(game.getTitle(), game.getByteOrder(), wadFile,
+					game.getColumnDecimation());
 		case DOOMTD3_BIG_ENDIAN, DOOMTD3_LITTLE_ENDIAN ->
-			new WadProcessorDoomtd3(game.getTitle(), game.getByteOrder(), wadFile);
+			new WadProcessorDoomtd3(game.getTitle(), game.getByteOrder(), wadFile, game.getColumnDecimation());
 		};
 	}
 
@@ -1,18 +1,12 @@
 package com.sfprod.jwadutil;
 
 import static com.sfprod.utils.NumberUtils.toByte;
-import static com.sfprod.utils.NumberUtils.toInt;
 
-import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.Comparator;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.Random;
-import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import com.sfprod.utils.ByteBufferUtils;
@@ -20,19 +14,20 @@ import com.sfprod.utils.NumberUtils;
 
 public abstract class WadProcessorLimitedColors extends WadProcessor {
 
-	protected final Random random = new Random(0x1d4a11);
+	protected final Random random = new Random(RANDOM_SEED);
 
 	private final List<Integer> grayscaleFromDarkToBright;
 	private final int divisor;
 
-	private Map<Integer, List<Integer>> availableColorsShuffleMap;
+	private ColorShuffler availableColorsShuffler;
+	private ColorMatcher availableColorsMatcher;
 
-	private List<Integer> vga256toByteLUT;
-	private List<Integer> vga256toSingleColorLUT;
+	private PaletteMapper vga256toByteLUT;
+	private PaletteMapper vga256toSingleColorLUT;
 
 	protected WadProcessorLimitedColors(String title, ByteOrder byteOrder, WadFile wadFile,
-			List<Integer> grayscaleFromDarkToBright, int divisor) {
-		super(title, byteOrder, wadFile);
+			ColumnDecimation columnDecimation, List<Integer> grayscaleFromDarkToBright, int divisor) {
+		super(title, byteOrder, wadFile, columnDecimation);
 		this.grayscaleFromDarkToBright = grayscaleFromDarkToBright;
 		this.divisor = divisor;
 	}
@@ -40,36 +35,23 @@ public abstract class WadProcessorLimitedColors extends WadProcessor {
 	protected void fillAvailableColorsShuffleMap(List<Color> colors) {
 		setAvailableColors(colors);
 
-		Map<Integer, List<Integer>> shuffleMap = new HashMap<>();
-		for (int i = 0; i < 256; i++) {
-			List<Integer> sameColorList = new ArrayList<>();
-			Color availableColor = availableColors.get(i);
-			for (int j = 0; j < 256; j++) {
-				Color otherColor = availableColors.get(j);
-				if (availableColor.equals(otherColor)) {
-					sameColorList.add(j);
-				}
-			}
-
-			shuffleMap.put(i, sameColorList);
-		}
-
-		this.availableColorsShuffleMap = shuffleMap;
+		this.availableColorsShuffler = ColorShuffler.of(availableColors);
+		this.availableColorsMatcher = new ColorMatcher(availableColors);
 
-		this.vga256toByteLUT = Collections.unmodifiableList(createVga256toByteLUT(availableColors));
-		this.vga256toSingleColorLUT = Collections.unmodifiableList(createVga256toSingleColorLUT(vga256toByteLUT));
+		this.vga256toByteLUT = createVga256toByteLUT(availableColors);
+		this.vga256toSingleColorLUT = createVga256toSingleColorLUT(vga256toByteLUT);
 	}
 
-	protected abstract List<Integer> createVga256toByteLUT(List<Color> availableCols);
+	protected abstract PaletteMapper createVga256toByteLUT(List<Color> availableCols);
 
-	protected abstract List<Integer> createVga256toSingleColorLUT(List<Integer> vga256toByteLut);
+	protected abstract PaletteMapper createVga256toSingleColorLUT(PaletteMapper vga256toByteLut);
 
-	protected byte convertVga256toByte(byte b) {
-		return toByte(vga256toByteLUT.get(toInt(b)));
+	protected final void convertVga256toByte(byte[] data, int from, int to) {
+		vga256toByteLUT.apply(data, from, to);
 	}
 
-	protected final byte convertVga256toSingleColor(byte b) {
-		return toByte(vga256toSingleColorLUT.get(toInt(b)));
+	protected final void convertVga256toSingleColor(byte[] data, int from, int to) {
+		vga256toSingleColorLUT.apply(data, from, to);
 	}
 
 	@Override
@@ -83,31 +65,6 @@ public abstract class WadProcessorLimitedColors extends WadProcessor {
 		// Finale background flat
 		rawGraphics.add(wadFile.getLumpByName("FLOOR4_8"));
 		rawGraphics.forEach(this::changePaletteRaw);
-
-		// Graphics in picture format
-
-		List<Lump> spritesAndWallsGraphics = new ArrayList<>(256);
-		// Sprites
-		spritesAndWallsGraphics.addAll(wadFile.getLumpsBetween("S_START", "S_END"));
-		// Walls
-		spritesAndWallsGraphics.addAll(wadFile.getLumpsBetween("P1_START", "P1_END"));
-
-		spritesAndWallsGraphics.forEach(this::changePaletteSpritesAndWalls);
-
-		List<Lump> statusBarMenuAndIntermissionGraphics = new ArrayList<>(256);
-		// Status bar
-		statusBarMenuAndIntermissionGraphics.addAll(wadFile.getLumpsByName("STC"));
-		statusBarMenuAndIntermissionGraphics.addAll(wadFile.getLumpsByName("STF"));
-		statusBarMenuAndIntermissionGraphics.addAll(wadFile.getLumpsByName("STG"));
-		statusBarMenuAndIntermissionGraphics.addAll(wadFile.getLumpsByName("STK"));
-		statusBarMenuAndIntermissionGraphics.addAll(wadFile.getLumpsByName("STY"));
-		// Menu
-		statusBarMenuAndIntermissionGraphics.addAll(wadFile.getLumpsByName("M_"));
-		// Intermission
-		statusBarMenuAndIntermissionGraphics
-				.addAll(wadFile.getLumpsByName("WI").stream().filter(l -> !"WIMAP0".equals(l.nameAsString())).toList());
-
-		statusBarMenuAndIntermissionGraphics.forEach(this::changePaletteStatusBarMenuAndIntermission);
 	}
 
 	@Override
@@ -116,41 +73,25 @@ public abstract class WadProcessorLimitedColors extends WadProcessor {
 
 	protected abstract void changePaletteRaw(Lump lump);
 
-	private void changePaletteSpritesAndWalls(Lump lump) {
-		changePalettePicture(lump, this::convertVga256toByte);
+	@Override
+	protected void changePaletteSprite(Lump lump, Picture picture) {
+		changePalettePicture(picture, vga256toByteLUT);
 	}
 
-	private void changePaletteStatusBarMenuAndIntermission(Lump lump) {
-		changePalettePicture(lump, this::convertVga256toSingleColor);
+	@Override
+	protected void changePaletteWall(Lump lump, Picture picture) {
+		changePalettePicture(picture, vga256toByteLUT);
 	}
 
-	private void changePalettePicture(Lump lump, Function<Byte, Byte> colorConvertFunction) {
-		ByteBuffer dataByteBuffer = lump.dataAsByteBuffer();
-		short width = dataByteBuffer.getShort();
-		dataByteBuffer.getShort(); // height
-		dataByteBuffer.getShort(); // leftoffset
-		dataByteBuffer.getShort(); // topoffset
-
-		List<Integer> columnofs = new ArrayList<>();
-		for (int columnof = 0; columnof < width; columnof++) {
-			columnofs.add(dataByteBuffer.getInt());
-		}
+	@Override
+	protected void changePaletteStatusBarMenuAndIntermission(Lump lump, Picture picture) {
+		changePalettePicture(picture, vga256toSingleColorLUT);
+	}
 
-		for (int columnof = 0; columnof < width; columnof++) {
-			int index = columnofs.get(columnof);
-			byte topdelta = lump.data()[index];
-			index++;
-			while (topdelta != -1) {
-				byte lengthByte = lump.data()[index];
-				index++;
-				int length = toInt(lengthByte);
-				for (int i = 0; i < length + 2; i++) {
-					lump.data()[index] = colorConvertFunction.apply(lump.data()[index]);
-					index++;
-				}
-				topdelta = lump.data()[index];
-				index++;
-			}
+	private static void changePalettePicture(Picture picture, PaletteMapper paletteMapper) {
+		for (int column = 0; column < picture.width(); column++) {
+			picture.forEachPost(column,
+					(topdelta, offset, length) -> paletteMapper.apply(picture.data(), offset - 1, offset + length + 1));
 		}
 	}
 
@@ -217,7 +158,7 @@ public abstract class WadProcessorLimitedColors extends WadProcessor {
 				int g = Math.clamp((long) Math.sqrt(color.g() * color.g() * c / 32), 0, 255);
 				int b = Math.clamp((long) Math.sqrt(color.b() * color.b() * c / 32), 0, 255);
 
-				byte closestColor = calculateClosestColor(new Color(r, g, b));
+				byte closestColor = toByte(availableColorsMatcher.closestColor(new Color(r, g, b)));
 				byte shuffledColor = shuffleColor(closestColor);
 				result.add(shuffledColor);
 			}
@@ -226,61 +167,20 @@ public abstract class WadProcessorLimitedColors extends WadProcessor {
 		return result;
 	}
 
-	private byte calculateClosestColor(Color c) {
-		int closestColor = -1;
-		int closestDist = Integer.MAX_VALUE;
-
-		for (int i = 0; i < 256; i++) {
-			int dist = c.calculateDistance(availableColors.get(i));
-			if (dist < closestDist) {
-				closestDist = dist;
-				closestColor = i;
-			}
-		}
-
-		return toByte(closestColor);
-	}
-
 	@Override
 	protected void shuffleColors() {
 		// Graphics in picture format
 		// Walls
-		wadFile.getLumpsBetween("P1_START", "P1_END").forEach(this::shuffleColorPicture);
+		shuffleColorsWalls(random);
 	}
 
-	private void shuffleColorPicture(Lump lump) {
-		ByteBuffer dataByteBuffer = lump.dataAsByteBuffer();
-		short width = dataByteBuffer.getShort();
-		dataByteBuffer.getShort(); // height
-		dataByteBuffer.getShort(); // leftoffset
-		dataByteBuffer.getShort(); // topoffset
-
-		List<Integer> columnofs = new ArrayList<>();
-		for (int columnof = 0; columnof < width; columnof++) {
-			columnofs.add(dataByteBuffer.getInt());
-		}
-
-		for (int columnof = 0; columnof < width; columnof++) {
-			int index = columnofs.get(columnof);
-			byte topdelta = lump.data()[index];
-			index++;
-			while (topdelta != -1) {
-				byte lengthByte = lump.data()[index];
-				index++;
-				int length = toInt(lengthByte);
-				for (int i = 0; i < length + 2; i++) {
-					lump.data()[index] = shuffleColor(lump.data()[index]);
-					index++;
-				}
-				topdelta = lump.data()[index];
-				index++;
-			}
-		}
+	protected byte shuffleColor(byte b) {
+		return availableColorsShuffler.apply(b, random);
 	}
 
-	protected byte shuffleColor(byte b) {
-		List<Integer> list = availableColorsShuffleMap.get(toInt(b));
-		return toByte(list.get(random.nextInt(list.size())));
+	@Override
+	protected final void shuffleColors(byte[] data, int from, int to, Random random) {
+		availableColorsShuffler.apply(data, from, to, random);
 	}
 
 	@Override
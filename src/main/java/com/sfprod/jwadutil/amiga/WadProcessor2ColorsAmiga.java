@@ -3,14 +3,16 @@ package com.sfprod.jwadutil.amiga;
 import java.nio.ByteOrder;
 import java.util.List;
 
+import com.sfprod.jwadutil.ColumnDecimation;
 import com.sfprod.jwadutil.Lump;
 import com.sfprod.jwadutil.WadFile;
 import com.sfprod.jwadutil.WadProcessor4Colors;
 
 public class WadProcessor2ColorsAmiga extends WadProcessor4Colors {
 
-	public WadProcessor2ColorsAmiga(String title, ByteOrder byteOrder, WadFile wadFile) {
-		super(title, byteOrder, wadFile, false, true);
+	public WadProcessor2ColorsAmiga(String title, ByteOrder byteOrder, WadFile wadFile,
+			ColumnDecimation columnDecimation) {
+		super(title, byteOrder, wadFile, columnDecimation, false, true);
 	}
 
 	@Override
@@ -4,12 +4,14 @@ import static com.sfprod.utils.NumberUtils.toShort;
 
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
 import com.sfprod.jwadutil.Color;
+import com.sfprod.jwadutil.ColorMatcher;
+import com.sfprod.jwadutil.ColumnDecimation;
 import com.sfprod.jwadutil.Lump;
+import com.sfprod.jwadutil.PaletteMapper;
 import com.sfprod.jwadutil.WadFile;
 import com.sfprod.jwadutil.WadProcessorLimitedColors;
 import com.sfprod.utils.ByteBufferUtils;
@@ -22,8 +24,9 @@ public class WadProcessor256ColorsArchimedes extends WadProcessorLimitedColors {
 			0xd0, 0xd1, 0xd2, 0xd3, //
 			0xf5, 0xf8, 0xfa, 0xff);
 
-	public WadProcessor256ColorsArchimedes(String title, ByteOrder byteOrder, WadFile wadFile) {
-		super(title, byteOrder, wadFile, GRAYSCALE_FROM_DARK_TO_BRIGHT, 16);
+	public WadProcessor256ColorsArchimedes(String title, ByteOrder byteOrder, WadFile wadFile,
+			ColumnDecimation columnDecimation) {
+		super(title, byteOrder, wadFile, columnDecimation, GRAYSCALE_FROM_DARK_TO_BRIGHT, 16);
 
 		Color[] colors = new Color[256];
 		// base colors;
@@ -86,38 +89,22 @@ public class WadProcessor256ColorsArchimedes extends WadProcessorLimitedColors {
 
 	@Override
 	protected void changePaletteRaw(Lump lump) {
-		for (int i = 0; i < lump.length(); i++) {
-			lump.data()[i] = convertVga256toByte(lump.data()[i]);
-		}
+		convertVga256toByte(lump.data(), 0, lump.length());
 	}
 
 	@Override
-	protected List<Integer> createVga256toByteLUT(List<Color> availableCols) {
-		List<Integer> indexes = new ArrayList<>();
-
-		for (Color vgaColor : vgaColors) {
-			int minClosestColor = Integer.MAX_VALUE;
-			int indexClosestColor = -1;
-
-			for (int c = 0; c < availableCols.size(); c++) {
-				Color archimedesColor = availableCols.get(c);
-
-				if (vgaColor.isGrayish() == archimedesColor.isGrayish()) {
-					int distanceToVga = archimedesColor.calculateDistance(vgaColor);
-					if (distanceToVga < minClosestColor) {
-						minClosestColor = distanceToVga;
-						indexClosestColor = c;
-					}
-				}
-			}
-			indexes.add(indexClosestColor);
-		}
-
-		return indexes;
+	protected PaletteMapper createVga256toByteLUT(List<Color> availableCols) {
+		// a grayish color matches a grayish color, a colorful color matches a
+		// colorful color
+		ColorMatcher grayishColorMatcher = new ColorMatcher(availableCols, Color::isGrayish);
+		ColorMatcher colorfulColorMatcher = new ColorMatcher(availableCols, c -> !c.isGrayish());
+
+		return PaletteMapper.of(vgaColors.stream()
+				.mapToInt(c -> (c.isGrayish() ? grayishColorMatcher : colorfulColorMatcher).closestColor(c)).toArray());
 	}
 
 	@Override
-	protected List<Integer> createVga256toSingleColorLUT(List<Integer> vga256toByteLUT) {
+	protected PaletteMapper createVga256toSingleColorLUT(PaletteMapper vga256toByteLUT) {
 		return vga256toByteLUT;
 	}
 }
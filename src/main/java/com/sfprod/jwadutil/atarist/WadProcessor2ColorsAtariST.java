@@ -2,13 +2,15 @@ package com.sfprod.jwadutil.atarist;
 
 import java.nio.ByteOrder;
 
+import com.sfprod.jwadutil.ColumnDecimation;
 import com.sfprod.jwadutil.WadFile;
 import com.sfprod.jwadutil.WadProcessor4Colors;
 
 public class WadProcessor2ColorsAtariST extends WadProcessor4Colors {
 
-	public WadProcessor2ColorsAtariST(String title, ByteOrder byteOrder, WadFile wadFile) {
-		super(title, byteOrder, wadFile, false, true);
+	public WadProcessor2ColorsAtariST(String title, ByteOrder byteOrder, WadFile wadFile,
+			ColumnDecimation columnDecimation) {
+		super(title, byteOrder, wadFile, columnDecimation, false, true);
 	}
 
 	@Override
@@ -2,14 +2,16 @@ package com.sfprod.jwadutil.attunixpc;
 
 import java.nio.ByteOrder;
 
+import com.sfprod.jwadutil.ColumnDecimation;
 import com.sfprod.jwadutil.Lump;
 import com.sfprod.jwadutil.WadFile;
 import com.sfprod.jwadutil.WadProcessor4Colors;
 
 public class WadProcessor2ColorsAttUnixPC extends WadProcessor4Colors {
 
-	public WadProcessor2ColorsAttUnixPC(String title, ByteOrder byteOrder, WadFile wadFile) {
-		super(title, byteOrder, wadFile, false, false);
+	public WadProcessor2ColorsAttUnixPC(String title, ByteOrder byteOrder, WadFile wadFile,
+			ColumnDecimation columnDecimation) {
+		super(title, byteOrder, wadFile, columnDecimation, false, false);
 	}
 
 	@Override
@@ -4,6 +4,7 @@ import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.util.List;
 
+import com.sfprod.jwadutil.ColumnDecimation;
 import com.sfprod.jwadutil.Lump;
 import com.sfprod.jwadutil.WadFile;
 import com.sfprod.jwadutil.WadProcessor4Colors;
@@ -11,8 +12,9 @@ import com.sfprod.utils.ByteBufferUtils;
 
 public class WadProcessor2ColorsMacintosh extends WadProcessor4Colors {
 
-	public WadProcessor2ColorsMacintosh(String title, ByteOrder byteOrder, WadFile wadFile) {
-		super(title, byteOrder, wadFile, true, true);
+	public WadProcessor2ColorsMacintosh(String title, ByteOrder byteOrder, WadFile wadFile,
+			ColumnDecimation columnDecimation) {
+		super(title, byteOrder, wadFile, columnDecimation, true, true);
 	}
 
 	@Override
@@ -4,7 +4,9 @@ import java.nio.ByteOrder;
 import java.util.List;
 
 import com.sfprod.jwadutil.Color;
+import com.sfprod.jwadutil.ColumnDecimation;
 import com.sfprod.jwadutil.Lump;
+import com.sfprod.jwadutil.PaletteMapper;
 import com.sfprod.jwadutil.WadFile;
 import com.sfprod.jwadutil.WadProcessor16ColorsDithered;
 
@@ -29,7 +31,7 @@ public class WadProcessor16ColorsDitheredPC extends WadProcessor16ColorsDithered
 			new Color(0xFF, 0xFF, 0xFF) // white
 	);
 
-	private static final List<Integer> VGA256_TO_BYTE_LUT = List.of( //
+	private static final PaletteMapper VGA256_TO_BYTE_LUT = PaletteMapper.of( //
 			0x00, 0x06, 0x00, // black
 			0x88, // gray
 			0xff, // white
@@ -67,24 +69,23 @@ public class WadProcessor16ColorsDitheredPC extends WadProcessor16ColorsDithered
 			0x47 // cream-colored
 	);
 
-	public WadProcessor16ColorsDitheredPC(String title, ByteOrder byteOrder, WadFile wadFile) {
-		super(title, byteOrder, wadFile, CGA_COLORS, 6);
+	public WadProcessor16ColorsDitheredPC(String title, ByteOrder byteOrder, WadFile wadFile,
+			ColumnDecimation columnDecimation) {
+		super(title, byteOrder, wadFile, columnDecimation, CGA_COLORS, 6);
 	}
 
 	@Override
-	protected List<Integer> createVga256toByteLUT(List<Color> availableCols) {
+	protected PaletteMapper createVga256toByteLUT(List<Color> availableCols) {
 		return VGA256_TO_BYTE_LUT;
 	}
 
 	@Override
-	protected List<Integer> createVga256toSingleColorLUT(List<Integer> vga256toByteLUT) {
+	protected PaletteMapper createVga256toSingleColorLUT(PaletteMapper vga256toByteLUT) {
 		return vga256toByteLUT;
 	}
 
 	@Override
 	protected void changePaletteRaw(Lump lump) {
-		for (int i = 0; i < lump.length(); i++) {
-			lump.data()[i] = convertVga256toByte(lump.data()[i]);
-		}
+		convertVga256toByte(lump.data(), 0, lump.length());
 	}
 }
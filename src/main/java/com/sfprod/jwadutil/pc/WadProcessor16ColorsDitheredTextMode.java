@@ -3,13 +3,15 @@ package com.sfprod.jwadutil.pc;
 import java.nio.ByteOrder;
 import java.util.List;
 
+import com.sfprod.jwadutil.ColumnDecimation;
 import com.sfprod.jwadutil.Lump;
 import com.sfprod.jwadutil.WadFile;
 
 public class WadProcessor16ColorsDitheredTextMode extends WadProcessor16ColorsDitheredPC {
 
-	public WadProcessor16ColorsDitheredTextMode(String title, ByteOrder byteOrder, WadFile wadFile) {
-		super(title, byteOrder, wadFile);
+	public WadProcessor16ColorsDitheredTextMode(String title, ByteOrder byteOrder, WadFile wadFile,
+			ColumnDecimation columnDecimation) {
+		super(title, byteOrder, wadFile, columnDecimation);
 	}
 
 	@Override
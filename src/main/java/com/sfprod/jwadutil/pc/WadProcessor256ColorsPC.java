@@ -2,13 +2,15 @@ package com.sfprod.jwadutil.pc;
 
 import java.nio.ByteOrder;
 
+import com.sfprod.jwadutil.ColumnDecimation;
 import com.sfprod.jwadutil.WadFile;
 import com.sfprod.jwadutil.WadProcessor;
 
 public class WadProcessor256ColorsPC extends WadProcessor {
 
-	public WadProcessor256ColorsPC(String title, ByteOrder byteOrder, WadFile wadFile) {
-		super(title, byteOrder, wadFile);
+	public WadProcessor256ColorsPC(String title, ByteOrder byteOrder, WadFile wadFile,
+			ColumnDecimation columnDecimation) {
+		super(title, byteOrder, wadFile, columnDecimation);
 	}
 
 	@Override
@@ -3,7 +3,6 @@ package com.sfprod.jwadutil.pc;
 import static com.sfprod.utils.NumberUtils.toByte;
 import static com.sfprod.utils.NumberUtils.toInt;
 
-import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -13,7 +12,10 @@ import java.util.Map;
 import java.util.Random;
 
 import com.sfprod.jwadutil.Color;
+import com.sfprod.jwadutil.ColumnDecimation;
 import com.sfprod.jwadutil.Lump;
+import com.sfprod.jwadutil.PaletteMapper;
+import com.sfprod.jwadutil.Picture;
 import com.sfprod.jwadutil.WadFile;
 import com.sfprod.jwadutil.WadProcessor;
 import com.sfprod.utils.ByteBufferUtils;
@@ -49,13 +51,18 @@ public class WadProcessor2ColorsTextMode extends WadProcessor {
 
 	private static final Map<Integer, List<Integer>> COLORS_SHUFFLE_MAP = createColorsShuffleMap();
 
-	private final Random random = new Random(0x1d4a11);
+	// Walls that get the colors of sprites
+	private static final List<String> SWITCHES_AND_DOORS = List.of("SW1S0", "SW1S1", "SW2S0", "SW2S1", "SW3S0",
+			"SW3S1", "SW4S0", "SW4S1", "WARNA0", "WARNB0", "DOOR2_1", "DOOR2_4", "DOOR2_5", "DOOR3_6", "DOOR9_1");
 
-	private final List<Byte> lookupTableWalls;
-	private final List<Byte> lookupTableSprites;
+	private final Random random = new Random(RANDOM_SEED);
 
-	public WadProcessor2ColorsTextMode(String title, ByteOrder byteOrder, WadFile wadFile) {
-		super(title, byteOrder, wadFile, new MapProcessor2ColorsTextMode(byteOrder, wadFile));
+	private final PaletteMapper lookupTableWalls;
+	private final PaletteMapper lookupTableSprites;
+
+	public WadProcessor2ColorsTextMode(String title, ByteOrder byteOrder, WadFile wadFile,
+			ColumnDecimation columnDecimation) {
+		super(title, byteOrder, wadFile, columnDecimation, new MapProcessor2ColorsTextMode(byteOrder, wadFile));
 
 		List<Double> grays = vgaColors.stream().map(Color::gray).toList();
 		List<Double> sortedGrays = grays.stream().sorted().toList();
@@ -71,7 +78,7 @@ public class WadProcessor2ColorsTextMode extends WadProcessor {
 		wadFile.replaceLump(new Lump("HELP2", getLump("HL80X25M").data(), ByteBufferUtils.DONT_CARE));
 	}
 
-	private List<Byte> createLookupTable(List<Double> grays, List<Double> sortedGrays, byte[] colors) {
+	private PaletteMapper createLookupTable(List<Double> grays, List<Double> sortedGrays, byte[] colors) {
 		double[] bucketLimits = new double[colors.length];
 		double fracstep = 256 / colors.length;
 		double frac = fracstep;
@@ -81,15 +88,15 @@ public class WadProcessor2ColorsTextMode extends WadProcessor {
 		}
 		bucketLimits[colors.length - 1] = Double.MAX_VALUE;
 
-		List<Byte> lut = new ArrayList<>();
-		for (Double gray : grays) {
+		byte[] lut = new byte[grays.size()];
+		for (int i = 0; i < lut.length; i++) {
 			int bucket = 0;
-			while (gray >= bucketLimits[bucket]) {
+			while (grays.get(i) >= bucketLimits[bucket]) {
 				bucket++;
 			}
-			lut.add(colors[bucket]);
+			lut[i] = colors[bucket];
 		}
-		return lut;
+		return PaletteMapper.of(lut);
 	}
 
 	private static Map<Integer, List<Integer>> createColorsShuffleMap(byte[] colors) {
@@ -133,65 +140,35 @@ public class WadProcessor2ColorsTextMode extends WadProcessor {
 		// Raw graphics
 		// Finale background flat
 		changePaletteRaw(wadFile.getLumpByName("FLOOR4_8"));
-
-		// Graphics in picture format
-		List<String> switchesAndDoors = List.of("SW1S0", "SW1S1", "SW2S0", "SW2S1", "SW3S0", "SW3S1", "SW4S0", "SW4S1",
-				"WARNA0", "WARNB0", "DOOR2_1", "DOOR2_4", "DOOR2_5", "DOOR3_6", "DOOR9_1");
-		// Sprites
-		List<Lump> sprites = new ArrayList<>(256);
-		sprites.addAll(switchesAndDoors.stream().map(wadFile::getLumpByName).toList());
-		sprites.addAll(wadFile.getLumpsBetween("S_START", "S_END"));
-		sprites.forEach(this::changePaletteSprites);
-		// Walls
-		wadFile.getLumpsBetween("P1_START", "P1_END").stream().filter(l -> !switchesAndDoors.contains(l.nameAsString()))
-				.forEach(this::changePaletteWalls);
-	}
-
-	private byte convert256to2(List<Byte> lookupTable, byte b) {
-		return lookupTable.get(toInt(b));
 	}
 
 	private void changePaletteRaw(Lump lump) {
-		for (int i = 0; i < lump.length(); i++) {
-			lump.data()[i] = convert256to2(lookupTableWalls, lump.data()[i]);
-		}
+		lookupTableWalls.apply(lump.data(), 0, lump.length());
 	}
 
-	private void changePaletteSprites(Lump lump) {
-		changePalettePicture(lookupTableSprites, lump);
+	@Override
+	protected void changePaletteSprite(Lump lump, Picture picture) {
+		changePalettePicture(lookupTableSprites, picture);
 	}
 
-	private void changePaletteWalls(Lump lump) {
-		changePalettePicture(lookupTableWalls, lump);
+	@Override
+	protected boolean isProcessedByName(String lumpname) {
+		return SWITCHES_AND_DOORS.contains(lumpname) || super.isProcessedByName(lumpname);
 	}
 
-	private void changePalettePicture(List<Byte> lookupTable, Lump lump) {
-		ByteBuffer dataByteBuffer = lump.dataAsByteBuffer();
-		short width = dataByteBuffer.getShort();
-		dataByteBuffer.getShort(); // height
-		dataByteBuffer.getShort(); // leftoffset
-		dataByteBuffer.getShort(); // topoffset
-
-		List<Integer> columnofs = new ArrayList<>();
-		for (int columnof = 0; columnof < width; columnof++) {
-			columnofs.add(dataByteBuffer.getInt());
+	@Override
+	protected void changePaletteWall(Lump lump, Picture picture) {
+		if (SWITCHES_AND_DOORS.contains(lump.nameAsString())) {
+			changePalettePicture(lookupTableSprites, picture);
+		} else {
+			changePalettePicture(lookupTableWalls, picture);
 		}
+	}
 
-		for (int columnof = 0; columnof < width; columnof++) {
-			int index = columnofs.get(columnof);
-			byte topdelta = lump.data()[index];
-			index++;
-			while (topdelta != -1) {
-				byte lengthByte = lump.data()[index];
-				index++;
-				int length = toInt(lengthByte);
-				for (int i = 0; i < length + 2; i++) {
-					lump.data()[index] = convert256to2(lookupTable, lump.data()[index]);
-					index++;
-				}
-				topdelta = lump.data()[index];
-				index++;
-			}
+	private void changePalettePicture(PaletteMapper lookupTable, Picture picture) {
+		for (int column = 0; column < picture.width(); column++) {
+			picture.forEachPost(column,
+					(topdelta, offset, length) -> lookupTable.apply(picture.data(), offset - 1, offset + length + 1));
 		}
 	}
 
@@ -290,7 +267,7 @@ public class WadProcessor2ColorsTextMode extends WadProcessor {
 		return colormapInvulnerability;
 	}
 
-	private byte shuffleColor(byte b) {
+	private static byte shuffleColor(byte b, Random random) {
 		List<Integer> list = COLORS_SHUFFLE_MAP.get(toInt(b));
 		return toByte(list.get(random.nextInt(list.size())));
 	}
@@ -303,42 +280,19 @@ public class WadProcessor2ColorsTextMode extends WadProcessor {
 
 		// Graphics in picture format
 		// Walls
-		wadFile.getLumpsBetween("P1_START", "P1_END").forEach(this::shuffleColorPicture);
+		shuffleColorsWalls(random);
 	}
 
 	private void shuffleColorsRaw(Lump lump) {
 		for (int i = 0; i < lump.length(); i++) {
-			lump.data()[i] = shuffleColor(lump.data()[i]);
+			lump.data()[i] = shuffleColor(lump.data()[i], random);
 		}
 	}
 
-	private void shuffleColorPicture(Lump lump) {
-		ByteBuffer dataByteBuffer = lump.dataAsByteBuffer();
-		short width = dataByteBuffer.getShort();
-		dataByteBuffer.getShort(); // height
-		dataByteBuffer.getShort(); // leftoffset
-		dataByteBuffer.getShort(); // topoffset
-
-		List<Integer> columnofs = new ArrayList<>();
-		for (int columnof = 0; columnof < width; columnof++) {
-			columnofs.add(dataByteBuffer.getInt());
-		}
-
-		for (int columnof = 0; columnof < width; columnof++) {
-			int index = columnofs.get(columnof);
-			byte topdelta = lump.data()[index];
-			index++;
-			while (topdelta != -1) {
-				byte lengthByte = lump.data()[index];
-				index++;
-				int length = toInt(lengthByte);
-				for (int i = 0; i < length + 2; i++) {
-					lump.data()[index] = shuffleColor(lump.data()[index]);
-					index++;
-				}
-				topdelta = lump.data()[index];
-				index++;
-			}
+	@Override
+	protected void shuffleColors(byte[] data, int from, int to, Random random) {
+		for (int i = from; i < to; i++) {
+			data[i] = shuffleColor(data[i], random);
 		}
 	}
 
@@ -3,14 +3,16 @@ package com.sfprod.jwadutil.sinclairql;
 import java.nio.ByteOrder;
 import java.util.List;
 
+import com.sfprod.jwadutil.ColumnDecimation;
 import com.sfprod.jwadutil.Lump;
 import com.sfprod.jwadutil.WadFile;
 import com.sfprod.jwadutil.WadProcessor4Colors;
 
 public class WadProcessor2ColorsSinclairQL extends WadProcessor4Colors {
 
-	public WadProcessor2ColorsSinclairQL(String title, ByteOrder byteOrder, WadFile wadFile) {
-		super(title, byteOrder, wadFile, false, true);
+	public WadProcessor2ColorsSinclairQL(String title, ByteOrder byteOrder, WadFile wadFile,
+			ColumnDecimation columnDecimation) {
+		super(title, byteOrder, wadFile, columnDecimation, false, true);
 	}
 
 	@Override
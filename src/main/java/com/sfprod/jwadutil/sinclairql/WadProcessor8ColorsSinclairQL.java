@@ -2,12 +2,8 @@ package com.sfprod.jwadutil.sinclairql;
 
 import static com.sfprod.utils.ByteBufferUtils.newByteBuffer;
 import static com.sfprod.utils.ByteBufferUtils.toByteList;
-import static com.sfprod.utils.NumberUtils.toByte;
 import static com.sfprod.utils.NumberUtils.toShort;
 
-import java.awt.image.BufferedImage;
-import java.io.IOException;
-import java.io.UncheckedIOException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.util.ArrayList;
@@ -17,10 +13,13 @@ import java.util.List;
 import java.util.SortedMap;
 import java.util.TreeMap;
 
-import javax.imageio.ImageIO;
-
 import com.sfprod.jwadutil.Color;
+import com.sfprod.jwadutil.ColorMatcher;
+import com.sfprod.jwadutil.ColumnDecimation;
+import com.sfprod.jwadutil.IndexedImage;
 import com.sfprod.jwadutil.Lump;
+import com.sfprod.jwadutil.PaletteMapper;
+import com.sfprod.jwadutil.PixelPacking;
 import com.sfprod.jwadutil.WadFile;
 import com.sfprod.jwadutil.WadProcessorLimitedColors;
 import com.sfprod.utils.ByteBufferUtils;
@@ -49,7 +48,7 @@ public class WadProcessor8ColorsSinclairQL extends WadProcessorLimitedColors {
 			0b0__00_00_00_10__00_00_00_11 // white
 	);
 
-	private static final List<Integer> VGA256_TO_8_LUT = List.of( //
+	private static final PaletteMapper VGA256_TO_8_LUT = PaletteMapper.of( //
 			0, 0, 0, // black
 			5, // gray
 			7, // white
@@ -87,7 +86,7 @@ public class WadProcessor8ColorsSinclairQL extends WadProcessorLimitedColors {
 			-1 // cream-colored
 	);
 
-	private static final List<Integer> VGA256_TO_BYTE_LUT = List.of( //
+	private static final PaletteMapper VGA256_TO_BYTE_LUT = PaletteMapper.of( //
 			0, 0, 0, // black
 			34, // gray
 			124, // white
@@ -127,6 +126,10 @@ public class WadProcessor8ColorsSinclairQL extends WadProcessorLimitedColors {
 
 	private static final SortedMap<Color, List<Integer>> SINCLAIR_QL_PALETTE = createSinclairQLPalette();
 
+	private static final List<Color> SINCLAIR_QL_PALETTE_COLORS = List.copyOf(SINCLAIR_QL_PALETTE.keySet());
+
+	private static final ColorMatcher SINCLAIR_QL_COLOR_MATCHER = new ColorMatcher(SINCLAIR_QL_PALETTE_COLORS);
+
 	private static SortedMap<Color, List<Integer>> createSinclairQLPalette() {
 		SortedMap<Color, List<Integer>> sinclairQLPalette = new TreeMap<>(Comparator.comparing(Color::gray));
 
@@ -143,8 +146,9 @@ public class WadProcessor8ColorsSinclairQL extends WadProcessorLimitedColors {
 		return sinclairQLPalette;
 	}
 
-	public WadProcessor8ColorsSinclairQL(String title, ByteOrder byteOrder, WadFile wadFile) {
-		super(title, byteOrder, wadFile, Collections.emptyList(), 0);
+	public WadProcessor8ColorsSinclairQL(String title, ByteOrder byteOrder, WadFile wadFile,
+			ColumnDecimation columnDecimation) {
+		super(title, byteOrder, wadFile, columnDecimation, Collections.emptyList(), 0);
 
 		List<Color> availColors = new ArrayList<>();
 		for (int i : SINCLAIR_QL_PALETTE.values().stream().map(List::getFirst).toList()) {
@@ -191,48 +195,18 @@ public class WadProcessor8ColorsSinclairQL extends WadProcessorLimitedColors {
 	}
 
 	private Lump createSinclairQLLump(String lumpname) {
-		List<Integer> rgbs = SINCLAIR_QL_COLORS.stream().map(Color::getRGB).toList();
-
-		try {
-			BufferedImage image = ImageIO
-					.read(WadProcessor8ColorsSinclairQL.class.getResourceAsStream("/QL/" + lumpname + ".PNG"));
-			byte[] data = new byte[(image.getWidth() / 4) * image.getHeight() * 2];
-			int i = 0;
-			for (int y = 0; y < image.getHeight(); y++) {
-				for (int x = 0; x < image.getWidth() / 4; x++) {
-					byte bh = 0;
-					byte bl = 0;
-					for (int p = 0; p < 4; p++) {
-						int rgb = image.getRGB(x * 4 + p, y);
-						int rgbIndex = rgbs.indexOf(rgb);
-						assert 0 <= rgbIndex && rgbIndex < 8;
-						if (rgbIndex < 4) {
-							bh = toByte(bh << 2);
-							bl = toByte((bl << 2) | rgbIndex);
-						} else {
-							bh = toByte((bh << 2) | 2);
-							bl = toByte((bl << 2) | (rgbIndex - 4));
-						}
-					}
-					data[i] = bh;
-					i++;
-					data[i] = bl;
-					i++;
-				}
-			}
-			return new Lump(lumpname, data, ByteBufferUtils.DONT_CARE);
-		} catch (IOException e) {
-			throw new UncheckedIOException(e);
-		}
+		byte[] data = IndexedImage.read("/QL/" + lumpname + ".PNG", SINCLAIR_QL_COLORS)
+				.pack(PixelPacking.SINCLAIR_QL_MODE_8);
+		return new Lump(lumpname, data, ByteBufferUtils.DONT_CARE);
 	}
 
 	@Override
-	protected List<Integer> createVga256toByteLUT(List<Color> availableCols) {
+	protected PaletteMapper createVga256toByteLUT(List<Color> availableCols) {
 		return VGA256_TO_BYTE_LUT;
 	}
 
 	@Override
-	protected List<Integer> createVga256toSingleColorLUT(List<Integer> vga256toByteLUT) {
+	protected PaletteMapper createVga256toSingleColorLUT(PaletteMapper vga256toByteLUT) {
 		return VGA256_TO_8_LUT;
 	}
 
@@ -331,18 +305,7 @@ public class WadProcessor8ColorsSinclairQL extends WadProcessorLimitedColors {
 	}
 
 	private Color calculateClosestColor(Color c) {
-		Color closestColor = null;
-		int closestDist = Integer.MAX_VALUE;
-
-		for (Color possibleColor : SINCLAIR_QL_PALETTE.keySet()) {
-			int dist = c.calculateDistance(possibleColor);
-			if (dist < closestDist) {
-				closestDist = dist;
-				closestColor = possibleColor;
-			}
-		}
-
-		return closestColor;
+		return SINCLAIR_QL_PALETTE_COLORS.get(SINCLAIR_QL_COLOR_MATCHER.closestColor(c));
 	}
 
 	@Override
@@ -0,0 +1,55 @@
+package com.sfprod.utils;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+public interface HashUtils {
+
+	long PRIME64_1 = 0x9E3779B185EBCA87L;
+	long PRIME64_2 = 0xC2B2AE3D27D4EB4FL;
+	long PRIME64_3 = 0x165667B19E3779F9L;
+	long PRIME64_4 = 0x85EBCA77C2B2AE63L;
+	long PRIME64_5 = 0x27D4EB2F165667C5L;
+
+	/**
+	 * 64-bit hash of the remaining bytes, in the style of xxHash64. The
+	 * position and byte order of the buffer are left untouched.
+	 *
+	 * @param byteBuffer
+	 * @return
+	 */
+	static long hash64(ByteBuffer byteBuffer) {
+		ByteBuffer bb = byteBuffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+
+		long h = PRIME64_5 + bb.remaining();
+
+		while (bb.remaining() >= 8) {
+			long k = bb.getLong() * PRIME64_2;
+			k = Long.rotateLeft(k, 31) * PRIME64_1;
+			h ^= k;
+			h = Long.rotateLeft(h, 27) * PRIME64_1 + PRIME64_4;
+		}
+
+		if (bb.remaining() >= 4) {
+			h ^= (bb.getInt() & 0xffffffffL) * PRIME64_1;
+			h = Long.rotateLeft(h, 23) * PRIME64_2 + PRIME64_3;
+		}
+
+		while (bb.hasRemaining()) {
+			h ^= (bb.get() & 0xff) * PRIME64_5;
+			h = Long.rotateLeft(h, 11) * PRIME64_1;
+		}
+
+		h ^= h >>> 33;
+		h *= PRIME64_2;
+		h ^= h >>> 29;
+		h *= PRIME64_3;
+		h ^= h >>> 32;
+		return h;
+	}
+
+	static long hash64(byte[] bytes) {
+		return hash64(ByteBuffer.wrap(bytes));
+	}
+
+}
@@ -0,0 +1,117 @@
+package com.sfprod.utils;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Chunky to planar conversion. Every 8 chunky pixels, one pixel per byte, are
+ * converted at once with an 8x8 bit matrix transpose. The first pixel ends up
+ * in the most significant bit of every plane.
+ */
+public interface PlanarUtils {
+
+	/**
+	 * How the planes of the pixels follow each other
+	 */
+	enum Interleave {
+		/**
+		 * A word of every plane for every 16 pixels, like the Atari ST
+		 */
+		WORD,
+
+		/**
+		 * Every plane of a line for every line, like the Amiga
+		 */
+		LINE;
+
+		int bytesPerPlane(int width) {
+			return switch (this) {
+			case WORD -> 2;
+			case LINE -> width / 8;
+			};
+		}
+	}
+
+	/**
+	 * @param chunky     width * height pixels
+	 * @param width      a multiple of 16 for {@link Interleave#WORD}, a multiple
+	 *                   of 8 for {@link Interleave#LINE}
+	 * @param height
+	 * @param planes     from 1 to 8, the bits of the pixels that don't fit in the
+	 *                   planes are ignored
+	 * @param interleave
+	 * @return width * height * planes / 8 bytes
+	 */
+	static byte[] toPlanar(byte[] chunky, int width, int height, int planes, Interleave interleave) {
+		if (chunky.length != width * height) {
+			throw new IllegalArgumentException(
+					chunky.length + " pixels isn't an image of " + width + " by " + height + " pixels");
+		}
+
+		int bytesPerPlane = interleave.bytesPerPlane(width);
+		if (width % (8 * bytesPerPlane) != 0) {
+			throw new IllegalArgumentException(
+					"The width " + width + " isn't a multiple of " + (8 * bytesPerPlane) + " pixels");
+		}
+
+		byte[] planar = new byte[chunky.length / 8 * planes];
+		toPlanar(chunky, 0, chunky.length, planes, bytesPerPlane, planar, 0);
+		return planar;
+	}
+
+	/**
+	 * Convert pixels in groups of 8 * bytesPerPlane pixels. A group becomes
+	 * bytesPerPlane bytes of the first plane, followed by bytesPerPlane bytes of
+	 * the next plane, and so on. Also useful for the posts of a column, padded to
+	 * a whole group.
+	 *
+	 * @param chunky
+	 * @param chunkyOffset
+	 * @param pixelCount    a multiple of 8 * bytesPerPlane
+	 * @param planes        from 1 to 8
+	 * @param bytesPerPlane
+	 * @param planar        room for pixelCount * planes / 8 bytes
+	 * @param planarOffset
+	 */
+	static void toPlanar(byte[] chunky, int chunkyOffset, int pixelCount, int planes, int bytesPerPlane,
+			byte[] planar, int planarOffset) {
+		if (!(1 <= planes && planes <= 8)) {
+			throw new IllegalArgumentException(planes + " planes isn't from 1 to 8 planes");
+		}
+		if (bytesPerPlane <= 0 || pixelCount % (8 * bytesPerPlane) != 0) {
+			throw new IllegalArgumentException(
+					pixelCount + " pixels can't be split in groups of " + (8 * bytesPerPlane) + " pixels");
+		}
+
+		ByteBuffer chunkyByteBuffer = ByteBuffer.wrap(chunky);
+		int groupSize = 8 * bytesPerPlane;
+		int p = planarOffset;
+		for (int group = chunkyOffset; group < chunkyOffset + pixelCount; group += groupSize) {
+			for (int i = 0; i < bytesPerPlane; i++) {
+				long transposed = transpose8x8(chunkyByteBuffer.getLong(group + 8 * i));
+				for (int plane = 0; plane < planes; plane++) {
+					planar[p + plane * bytesPerPlane + i] = (byte) (transposed >>> (8 * plane));
+				}
+			}
+			p += planes * bytesPerPlane;
+		}
+	}
+
+	/**
+	 * Transpose an 8x8 bit matrix. Row r is byte r from the most significant byte,
+	 * column c is bit 7 - c of a row.
+	 *
+	 * @param x
+	 * @return
+	 */
+	static long transpose8x8(long x) {
+		long t;
+		t = (x ^ (x >>> 7)) & 0x00aa00aa00aa00aaL;
+		x = x ^ t ^ (t << 7);
+		t = (x ^ (x >>> 14)) & 0x0000cccc0000ccccL;
+		x = x ^ t ^ (t << 14);
+		t = (x ^ (x >>> 28)) & 0x00000000f0f0f0f0L;
+		x = x ^ t ^ (t << 28);
+		return x;
+	}
+
+}
@@ -0,0 +1,65 @@
+package com.sfprod.jwadutil;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * This class tests {@link BuildManifest}
+ *
+ */
+class BuildManifestTest {
+
+	private static final Game GAME = Game.DOOM8088;
+
+	private static final String RESOURCE = "/BuildManifestTest.LMP";
+
+	@TempDir
+	private Path directory;
+
+	@Test
+	void update() throws IOException {
+		Files.write(directory.resolve(GAME.getWadFile()), new byte[] { 1, 2, 3 });
+
+		BuildManifest buildManifest = new BuildManifest(directory);
+		assertFalse(buildManifest.isUpToDate(GAME));
+
+		buildManifest.update(GAME, Set.of("/M_GAMMA.LMP"));
+		assertTrue(buildManifest.isUpToDate(GAME));
+		buildManifest.save();
+		assertTrue(new BuildManifest(directory).isUpToDate(GAME));
+		assertFalse(new BuildManifest(directory).isUpToDate(Game.ELKSDOOM));
+
+		Files.write(directory.resolve(GAME.getWadFile()), new byte[] { 1, 2, 4 });
+		assertFalse(new BuildManifest(directory).isUpToDate(GAME));
+	}
+
+	@Test
+	void changedResource() throws IOException, URISyntaxException {
+		Path classes = Path.of(BuildManifestTest.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+		Path resource = classes.resolve(RESOURCE.substring(1));
+		try {
+			Files.write(resource, new byte[] { 1, 2, 3 });
+			Files.write(directory.resolve(GAME.getWadFile()), new byte[] { 1, 2, 3 });
+
+			BuildManifest buildManifest = new BuildManifest(directory);
+			buildManifest.update(GAME, Set.of("/M_GAMMA.LMP", RESOURCE));
+			buildManifest.save();
+			assertTrue(new BuildManifest(directory).isUpToDate(GAME));
+
+			Files.write(resource, new byte[] { 1, 2, 4 });
+			assertFalse(new BuildManifest(directory).isUpToDate(GAME));
+		} finally {
+			Files.deleteIfExists(resource);
+		}
+	}
+
+}
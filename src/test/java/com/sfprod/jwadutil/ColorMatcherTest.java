@@ -0,0 +1,89 @@
+package com.sfprod.jwadutil;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Predicate;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class tests {@link ColorMatcher}
+ *
+ */
+class ColorMatcherTest {
+
+	private final Random random = new Random(0x1d4a11);
+
+	@Test
+	void closestColor() {
+		// few different components, to get many equally close colors
+		List<Color> colors = randomColors(256, 8);
+		ColorMatcher colorMatcher = new ColorMatcher(colors);
+
+		for (int i = 0; i < 10000; i++) {
+			Color color = randomColor(256);
+			assertEquals(closestColor(colors, color, c -> true), colorMatcher.closestColor(color));
+		}
+	}
+
+	@Test
+	void closestColorWithFilter() {
+		List<Color> colors = randomColors(256, 4);
+		colors.addAll(List.of(new Color(0, 0, 0), new Color(128, 128, 128), new Color(255, 255, 255)));
+		ColorMatcher colorMatcher = new ColorMatcher(colors, Color::isGrayish);
+
+		for (int i = 0; i < 1000; i++) {
+			Color color = randomColor(256);
+			assertEquals(closestColor(colors, color, Color::isGrayish), colorMatcher.closestColor(color));
+		}
+	}
+
+	@Test
+	void remove() {
+		List<Color> colors = randomColors(64, 256);
+		ColorMatcher colorMatcher = new ColorMatcher(colors);
+		List<Color> availableColors = new ArrayList<>(colors);
+
+		for (int i = 0; i < 64; i++) {
+			Color color = randomColor(256);
+			int closestColor = closestColor(availableColors, color, c -> c != null);
+			assertEquals(closestColor, colorMatcher.closestColor(color));
+			colorMatcher.remove(closestColor);
+			availableColors.set(closestColor, null);
+		}
+		assertEquals(-1, colorMatcher.closestColor(randomColor(256)));
+	}
+
+	private static int closestColor(List<Color> colors, Color color, Predicate<Color> filter) {
+		int closestColor = -1;
+		int closestDist = Integer.MAX_VALUE;
+		for (int i = 0; i < colors.size(); i++) {
+			if (filter.test(colors.get(i))) {
+				int dist = color.calculateDistance(colors.get(i));
+				if (dist < closestDist) {
+					closestDist = dist;
+					closestColor = i;
+				}
+			}
+		}
+		return closestColor;
+	}
+
+	private List<Color> randomColors(int count, int components) {
+		List<Color> colors = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			colors.add(randomColor(components));
+		}
+		return colors;
+	}
+
+	private Color randomColor(int components) {
+		int step = 256 / components;
+		return new Color(random.nextInt(components) * step, random.nextInt(components) * step,
+				random.nextInt(components) * step);
+	}
+
+}
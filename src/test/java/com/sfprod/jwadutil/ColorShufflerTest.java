@@ -0,0 +1,112 @@
+package com.sfprod.jwadutil;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class tests {@link ColorShuffler}
+ *
+ */
+class ColorShufflerTest {
+
+	private static final long SEED = 0x1d4a11L;
+
+	/**
+	 * Colors 0 and 1 look the same, so do 2 and 3, and 4, 5 and 6. Every other
+	 * color looks different.
+	 */
+	private static final List<Color> COLORS = createColors();
+
+	private static final byte[] DATA = { 0, 2, 4, 7, 1, 3, 5, 6, (byte) 0xff, 0, 4, 4, 2, 1 };
+
+	@Test
+	void apply() {
+		byte[] data = DATA.clone();
+		ColorShuffler.of(COLORS).apply(data, 0, data.length, new Random(SEED));
+		assertArrayEquals(new byte[] { 1, 3, 4, 7, 1, 3, 4, 6, (byte) 0xff, 1, 5, 4, 3, 0 }, data);
+
+		List<Set<Integer>> shuffleSets = List.of(Set.of(0, 1), Set.of(2, 3), Set.of(4, 5, 6));
+		for (int i = 0; i < data.length; i++) {
+			int color = DATA[i] & 0xff;
+			Set<Integer> shuffleSet = shuffleSets.stream().filter(s -> s.contains(color)).findAny()
+					.orElse(Set.of(color));
+			assertTrue(shuffleSet.contains(data[i] & 0xff), "Pixel " + i);
+		}
+	}
+
+	@Test
+	void applyRange() {
+		byte[] data = DATA.clone();
+		ColorShuffler.of(COLORS).apply(data, 2, 5, new Random(SEED));
+		assertEquals(DATA[0], data[0]);
+		assertEquals(DATA[1], data[1]);
+		for (int i = 5; i < data.length; i++) {
+			assertEquals(DATA[i], data[i]);
+		}
+	}
+
+	/**
+	 * The colors are the same as those of a map from every color to a list of
+	 * the colors that look the same, with one random number per pixel
+	 */
+	@Test
+	void sameAsShuffleMap() {
+		Map<Integer, List<Integer>> shuffleMap = new HashMap<>();
+		for (int i = 0; i < 256; i++) {
+			List<Integer> sameColorList = new ArrayList<>();
+			for (int j = 0; j < 256; j++) {
+				if (COLORS.get(i).equals(COLORS.get(j))) {
+					sameColorList.add(j);
+				}
+			}
+			shuffleMap.put(i, sameColorList);
+		}
+
+		byte[] expected = DATA.clone();
+		Random random = new Random(SEED);
+		for (int i = 0; i < expected.length; i++) {
+			List<Integer> list = shuffleMap.get(expected[i] & 0xff);
+			expected[i] = (byte) (int) list.get(random.nextInt(list.size()));
+		}
+
+		ColorShuffler colorShuffler = ColorShuffler.of(COLORS);
+		byte[] data = DATA.clone();
+		colorShuffler.apply(data, 0, data.length, new Random(SEED));
+		assertArrayEquals(expected, data);
+
+		random = new Random(SEED);
+		for (int i = 0; i < DATA.length; i++) {
+			assertEquals(expected[i], colorShuffler.apply(DATA[i], random));
+		}
+	}
+
+	@Test
+	void wrongSize() {
+		assertThrows(IllegalArgumentException.class, () -> ColorShuffler.of(COLORS.subList(0, 255)));
+	}
+
+	private static List<Color> createColors() {
+		List<Color> colors = new ArrayList<>();
+		for (int i = 0; i < 256; i++) {
+			colors.add(switch (i) {
+			case 0, 1 -> new Color(0, 0, 1);
+			case 2, 3 -> new Color(0, 0, 2);
+			case 4, 5, 6 -> new Color(0, 0, 3);
+			default -> new Color(i, i, i);
+			});
+		}
+		return colors;
+	}
+
+}
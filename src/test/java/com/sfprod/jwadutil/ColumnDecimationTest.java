@@ -0,0 +1,36 @@
+package com.sfprod.jwadutil;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.ByteOrder;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class tests {@link ColumnDecimation}
+ *
+ */
+class ColumnDecimationTest {
+
+	@Test
+	void factor() {
+		ColumnDecimation columnDecimation = new ColumnDecimation(2, 4).withPrefix("SW", 1).withPrefix("SW1", 8);
+
+		assertEquals(2, columnDecimation.spriteFactor(lump("TROOA1")));
+		assertEquals(4, columnDecimation.wallFactor(lump("DOOR2_1")));
+		assertEquals(1, columnDecimation.wallFactor(lump("SW2_1")));
+		assertEquals(8, columnDecimation.wallFactor(lump("SW1_1")));
+	}
+
+	@Test
+	void invalidFactor() {
+		assertThrows(IllegalArgumentException.class, () -> new ColumnDecimation(3, 4));
+		assertThrows(IllegalArgumentException.class, () -> ColumnDecimation.DEFAULT.withPrefix("SW", 16));
+	}
+
+	private static Lump lump(String name) {
+		return new Lump(name, new byte[0], ByteOrder.LITTLE_ENDIAN);
+	}
+
+}
@@ -0,0 +1,52 @@
+package com.sfprod.jwadutil;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class tests {@link ColumnDictionary}
+ *
+ */
+class ColumnDictionaryTest {
+
+	@Test
+	void putIfAbsent() {
+		byte[] data = { 1, 2, 3, -1, 1, 2, 3, -1, 1, 2, -1 };
+		byte[] otherData = { 9, 1, 2, 3, -1 };
+
+		ColumnDictionary columnDictionary = new ColumnDictionary(1);
+
+		assertEquals(-1, columnDictionary.putIfAbsent(data, 0, 4, 8));
+		assertEquals(8, columnDictionary.putIfAbsent(data, 4, 4, 12));
+		assertEquals(-1, columnDictionary.putIfAbsent(data, 8, 3, 12));
+		assertEquals(8, columnDictionary.putIfAbsent(otherData, 1, 4, 15));
+		assertEquals(2, columnDictionary.size());
+	}
+
+	@Test
+	void putIfAbsentRandom() {
+		Random random = new Random(0x1d4a11);
+		byte[] data = new byte[10000];
+		for (int i = 0; i < data.length; i++) {
+			data[i] = (byte) random.nextInt(2);
+		}
+
+		ColumnDictionary columnDictionary = new ColumnDictionary(1);
+		Map<ByteBuffer, Integer> expected = new HashMap<>();
+		for (int value = 0; value < 5000; value++) {
+			int length = random.nextInt(8);
+			int offset = random.nextInt(data.length - length);
+			Integer expectedValue = expected.putIfAbsent(ByteBuffer.wrap(data, offset, length), value);
+			assertEquals(expectedValue == null ? -1 : expectedValue,
+					columnDictionary.putIfAbsent(data, offset, length, value));
+		}
+		assertEquals(expected.size(), columnDictionary.size());
+	}
+
+}
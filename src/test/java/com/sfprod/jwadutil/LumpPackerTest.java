@@ -0,0 +1,65 @@
+package com.sfprod.jwadutil;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class tests {@link LumpPacker}
+ *
+ */
+class LumpPackerTest {
+
+	@Test
+	void pack() {
+		List<ByteBuffer> datas = List.of( //
+				ByteBuffer.wrap(new byte[] { 1, 2, 3, 4, 5 }), //
+				ByteBuffer.wrap(new byte[] { 4, 5, 6, 7 }), //
+				ByteBuffer.wrap(new byte[] { 2, 3 }), //
+				ByteBuffer.wrap(new byte[] { 7, 8 }), //
+				ByteBuffer.wrap(new byte[] { 9 }));
+
+		LumpPacker.Layout layout = LumpPacker.pack(datas);
+
+		assertEquals(9, layout.size());
+		assertLayout(datas, layout);
+	}
+
+	@Test
+	void packRandom() {
+		Random random = new Random(0x1d4a11);
+		for (int i = 0; i < 100; i++) {
+			List<ByteBuffer> datas = new ArrayList<>();
+			for (int j = 0; j < 40; j++) {
+				byte[] data = new byte[1 + random.nextInt(20)];
+				for (int k = 0; k < data.length; k++) {
+					data[k] = (byte) random.nextInt(3);
+				}
+				if (datas.stream().noneMatch(d -> d.equals(ByteBuffer.wrap(data)))) {
+					datas.add(ByteBuffer.wrap(data));
+				}
+			}
+
+			assertLayout(datas, LumpPacker.pack(datas));
+		}
+	}
+
+	private void assertLayout(List<ByteBuffer> datas, LumpPacker.Layout layout) {
+		ByteBuffer packed = ByteBuffer.allocate(layout.size());
+		layout.segments().forEach(s -> packed.put(s.duplicate()));
+		assertEquals(layout.size(), packed.position());
+
+		for (int i = 0; i < datas.size(); i++) {
+			byte[] expected = datas.get(i).array();
+			int offset = layout.offsets()[i];
+			assertArrayEquals(expected, Arrays.copyOfRange(packed.array(), offset, offset + expected.length));
+		}
+	}
+}
@@ -0,0 +1,338 @@
+package com.sfprod.jwadutil;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class tests {@link NodeBuilder}
+ *
+ */
+class NodeBuilderTest {
+
+	private static final short NO_INDEX = -1;
+
+	// A room with a square platform and two triangular platforms. The line of
+	// the thin triangle from (473, 241) to (490, 264) crosses the east wall less
+	// than half a unit from the vertex where another partition line split it.
+	private static final short[][] VERTEXES = { //
+			{ 0, 0 }, { 0, 512 }, { 512, 512 }, { 512, 0 }, //
+			{ 128, 128 }, { 128, 256 }, { 256, 256 }, { 256, 128 }, //
+			{ 320, 320 }, { 384, 448 }, { 448, 320 }, //
+			{ 490, 264 }, { 459, 222 }, { 473, 241 } };
+
+	// v1, v2, front sidedef, back sidedef
+	private static final short[][] LINEDEFS = { //
+			{ 0, 1, 0, NO_INDEX }, { 1, 2, 0, NO_INDEX }, { 2, 3, 0, NO_INDEX }, { 3, 0, 0, NO_INDEX }, //
+			{ 4, 5, 1, 0 }, { 5, 6, 1, 0 }, { 6, 7, 1, 0 }, { 7, 4, 1, 0 }, //
+			{ 8, 9, 2, 0 }, { 9, 10, 2, 0 }, { 10, 8, 2, 0 }, //
+			{ 11, 12, 3, 0 }, { 12, 13, 3, 0 }, { 13, 11, 3, 0 } };
+
+	// sector of every sidedef
+	private static final short[] SIDEDEFS = { 0, 1, 2, 3 };
+
+	@Test
+	void buildNodes() {
+		WadFile wadFile = createWadFile(VERTEXES, LINEDEFS, SIDEDEFS);
+
+		new NodeBuilder().buildNodes(wadFile, 0);
+
+		ByteBuffer vertexes = wadFile.getLumpByName("VERTEXES").dataAsByteBuffer();
+		ByteBuffer segs = wadFile.getLumpByName("SEGS").dataAsByteBuffer();
+		ByteBuffer ssectors = wadFile.getLumpByName("SSECTORS").dataAsByteBuffer();
+		ByteBuffer nodes = wadFile.getLumpByName("NODES").dataAsByteBuffer();
+
+		assertSegsCoverLinedefs(VERTEXES, LINEDEFS, vertexes, segs);
+
+		// Every point ends up in a subsector of the right sector
+		assertEquals(0, findSector(nodes, ssectors, segs, LINEDEFS, SIDEDEFS, 64, 64));
+		assertEquals(0, findSector(nodes, ssectors, segs, LINEDEFS, SIDEDEFS, 400, 100));
+		assertEquals(0, findSector(nodes, ssectors, segs, LINEDEFS, SIDEDEFS, 100, 400));
+		assertEquals(1, findSector(nodes, ssectors, segs, LINEDEFS, SIDEDEFS, 192, 192));
+		assertEquals(2, findSector(nodes, ssectors, segs, LINEDEFS, SIDEDEFS, 384, 360));
+
+		assertConvex(vertexes, segs, ssectors);
+	}
+
+	/**
+	 * A room of 16 by 16 cells with a platform in every cell: a square, a diamond
+	 * or a random triangle
+	 */
+	@Test
+	void buildNodesOfLargerMap() {
+		int cells = 16;
+		int cellSize = 128;
+		Random random = new Random(1);
+
+		List<short[]> vertexList = new ArrayList<>();
+		List<short[]> linedefList = new ArrayList<>();
+		List<int[]> points = new ArrayList<>(); // x, y, sector
+		addPolygon(vertexList, linedefList, 0, new int[][] { { 0, 0 }, { 0, cells * cellSize },
+				{ cells * cellSize, cells * cellSize }, { cells * cellSize, 0 } });
+
+		for (int cx = 0; cx < cells; cx++) {
+			for (int cy = 0; cy < cells; cy++) {
+				int ox = cx * cellSize;
+				int oy = cy * cellSize;
+				int sector = cx * cells + cy + 1;
+				if (cx > 0 && cy > 0) {
+					points.add(new int[] { ox, oy, 0 });
+				}
+
+				switch ((cx + cy) % 3) {
+				case 0 -> {
+					addPolygon(vertexList, linedefList, sector, new int[][] { { ox + 32, oy + 32 },
+							{ ox + 32, oy + 96 }, { ox + 96, oy + 96 }, { ox + 96, oy + 32 } });
+					points.add(new int[] { ox + 64, oy + 64, sector });
+				}
+				case 1 -> {
+					addPolygon(vertexList, linedefList, sector, new int[][] { { ox + 64, oy + 112 },
+							{ ox + 112, oy + 64 }, { ox + 64, oy + 16 }, { ox + 16, oy + 64 } });
+					points.add(new int[] { ox + 64, oy + 64, sector });
+				}
+				default -> {
+					int[][] triangle;
+					long cross;
+					do {
+						triangle = new int[3][];
+						for (int i = 0; i < 3; i++) {
+							triangle[i] = new int[] { ox + 8 + random.nextInt(cellSize - 16),
+									oy + 8 + random.nextInt(cellSize - 16) };
+						}
+						cross = (long) (triangle[1][0] - triangle[0][0]) * (triangle[2][1] - triangle[0][1])
+								- (long) (triangle[1][1] - triangle[0][1]) * (triangle[2][0] - triangle[0][0]);
+					} while (cross == 0);
+					if (cross > 0) {
+						int[] vertex = triangle[1];
+						triangle[1] = triangle[2];
+						triangle[2] = vertex;
+					}
+					addPolygon(vertexList, linedefList, sector, triangle);
+
+					// The centroid of a thin triangle is too close to its sides to be
+					// sure which side of a rounded split vertex it's on
+					double distance = Double.MAX_VALUE;
+					for (int i = 0; i < 3; i++) {
+						int[] v1 = triangle[i];
+						int[] v2 = triangle[(i + 1) % 3];
+						distance = Math.min(distance, Math.abs(cross) / (3 * Math.hypot(v2[0] - v1[0], v2[1] - v1[1])));
+					}
+					if (distance >= 3) {
+						points.add(new int[] { (triangle[0][0] + triangle[1][0] + triangle[2][0]) / 3,
+								(triangle[0][1] + triangle[1][1] + triangle[2][1]) / 3, sector });
+					}
+				}
+				}
+			}
+		}
+
+		short[][] mapVertexes = vertexList.toArray(short[][]::new);
+		short[][] mapLinedefs = linedefList.toArray(short[][]::new);
+		short[] mapSidedefs = new short[cells * cells + 1];
+		for (int i = 0; i < mapSidedefs.length; i++) {
+			mapSidedefs[i] = (short) i;
+		}
+
+		WadFile wadFile = createWadFile(mapVertexes, mapLinedefs, mapSidedefs);
+
+		new NodeBuilder().buildNodes(wadFile, 0);
+
+		ByteBuffer vertexes = wadFile.getLumpByName("VERTEXES").dataAsByteBuffer();
+		ByteBuffer segs = wadFile.getLumpByName("SEGS").dataAsByteBuffer();
+		ByteBuffer ssectors = wadFile.getLumpByName("SSECTORS").dataAsByteBuffer();
+		ByteBuffer nodes = wadFile.getLumpByName("NODES").dataAsByteBuffer();
+
+		assertSegsCoverLinedefs(mapVertexes, mapLinedefs, vertexes, segs);
+
+		// Every point inside a sector ends up in a subsector whose first seg faces
+		// that sector
+		for (int[] point : points) {
+			assertEquals(point[2], findSector(nodes, ssectors, segs, mapLinedefs, mapSidedefs, point[0], point[1]),
+					"Point (" + point[0] + ", " + point[1] + ")");
+		}
+
+		assertConvex(vertexes, segs, ssectors);
+	}
+
+	/**
+	 * A two-sided line from corner to corner splits the room in two, but the line
+	 * and the walls are too long for the dx and dy of a node
+	 */
+	@Test
+	void buildNodesWithoutPartitionLine() {
+		short[][] vertexes = { { -16500, -16500 }, { -16500, 16500 }, { 16500, 16500 }, { 16500, -16500 } };
+		short[][] linedefs = { { 0, 1, 0, NO_INDEX }, { 1, 2, 0, NO_INDEX }, { 2, 3, 1, NO_INDEX },
+				{ 3, 0, 1, NO_INDEX }, { 0, 2, 1, 0 } };
+		short[] sidedefs = { 0, 1 };
+		WadFile wadFile = createWadFile(vertexes, linedefs, sidedefs);
+
+		IllegalStateException exception = assertThrows(IllegalStateException.class,
+				() -> new NodeBuilder().buildNodes(wadFile, 0));
+		assertTrue(exception.getMessage().contains("convex subsectors"));
+	}
+
+	@Test
+	void blockmapAndReject() {
+		WadFile wadFile = createWadFile(VERTEXES, LINEDEFS, SIDEDEFS);
+
+		new NodeBuilder().buildNodes(wadFile, 0);
+
+		ByteBuffer blockmap = wadFile.getLumpByName("BLOCKMAP").dataAsByteBuffer();
+		short bmaporgx = blockmap.getShort(0);
+		short bmaporgy = blockmap.getShort(2);
+		short bmapwidth = blockmap.getShort(4);
+		for (int linedef = 0; linedef < LINEDEFS.length; linedef++) {
+			short[] v1 = VERTEXES[LINEDEFS[linedef][0]];
+			int block = ((v1[1] - bmaporgy) >> 7) * bmapwidth + ((v1[0] - bmaporgx) >> 7);
+			List<Short> linedefs = new ArrayList<>();
+			int offset = blockmap.getShort(8 + block * 2) * 2;
+			assertEquals(0, blockmap.getShort(offset));
+			for (offset += 2; blockmap.getShort(offset) != -1; offset += 2) {
+				linedefs.add(blockmap.getShort(offset));
+			}
+			assertTrue(linedefs.contains((short) linedef));
+		}
+
+		// All sectors are connected
+		byte[] reject = wadFile.getLumpByName("REJECT").data();
+		assertEquals(2, reject.length);
+		assertEquals(0, reject[0]);
+		assertEquals(0, reject[1]);
+	}
+
+	/**
+	 * Every side of every linedef is completely covered by segs
+	 */
+	private static void assertSegsCoverLinedefs(short[][] mapVertexes, short[][] mapLinedefs, ByteBuffer vertexes,
+			ByteBuffer segs) {
+		double[] lengths = new double[mapLinedefs.length * 2];
+		for (int seg = 0; seg < segs.limit() / 12; seg++) {
+			int v1 = segs.getShort(seg * 12);
+			int v2 = segs.getShort(seg * 12 + 2);
+			int linedef = segs.getShort(seg * 12 + 6);
+			int side = segs.getShort(seg * 12 + 8);
+			lengths[linedef * 2 + side] += Math.hypot(vertexes.getShort(v2 * 4) - vertexes.getShort(v1 * 4),
+					vertexes.getShort(v2 * 4 + 2) - vertexes.getShort(v1 * 4 + 2));
+		}
+		for (int linedef = 0; linedef < mapLinedefs.length; linedef++) {
+			short[] v1 = mapVertexes[mapLinedefs[linedef][0]];
+			short[] v2 = mapVertexes[mapLinedefs[linedef][1]];
+			double length = Math.hypot(v2[0] - v1[0], v2[1] - v1[1]);
+			assertEquals(length, lengths[linedef * 2], 1);
+			assertEquals(mapLinedefs[linedef][3] == NO_INDEX ? 0 : length, lengths[linedef * 2 + 1], 1);
+		}
+	}
+
+	/**
+	 * No vertex of a subsector is more than a unit behind one of its segs
+	 */
+	private static void assertConvex(ByteBuffer vertexes, ByteBuffer segs, ByteBuffer ssectors) {
+		for (int subsector = 0; subsector < ssectors.limit() / 4; subsector++) {
+			int numsegs = ssectors.getShort(subsector * 4);
+			int firstseg = ssectors.getShort(subsector * 4 + 2);
+			for (int seg = firstseg; seg < firstseg + numsegs; seg++) {
+				int x = vertexes.getShort(segs.getShort(seg * 12) * 4);
+				int y = vertexes.getShort(segs.getShort(seg * 12) * 4 + 2);
+				int dx = vertexes.getShort(segs.getShort(seg * 12 + 2) * 4) - x;
+				int dy = vertexes.getShort(segs.getShort(seg * 12 + 2) * 4 + 2) - y;
+				for (int otherSeg = firstseg; otherSeg < firstseg + numsegs; otherSeg++) {
+					for (int v : new int[] { segs.getShort(otherSeg * 12), segs.getShort(otherSeg * 12 + 2) }) {
+						double side = dy * (vertexes.getShort(v * 4) - x) - dx * (vertexes.getShort(v * 4 + 2) - y);
+						assertTrue(side > -Math.hypot(dx, dy), "Subsector " + subsector + " isn't convex");
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Walk the nodes from the root to the subsector of the point
+	 *
+	 * @return the sector the first seg of the subsector faces
+	 */
+	private static int findSector(ByteBuffer nodes, ByteBuffer ssectors, ByteBuffer segs, short[][] mapLinedefs,
+			short[] mapSidedefs, int x, int y) {
+		int child = nodes.limit() / 28 - 1;
+		while ((child & 0x8000) == 0) {
+			int node = child * 28;
+			int dx = x - nodes.getShort(node);
+			int dy = y - nodes.getShort(node + 2);
+			boolean front = nodes.getShort(node + 6) * dx - nodes.getShort(node + 4) * dy > 0;
+			child = Short.toUnsignedInt(nodes.getShort(node + 24 + (front ? 0 : 2)));
+		}
+
+		int subsector = child & 0x7fff;
+		int firstseg = ssectors.getShort(subsector * 4 + 2);
+		int linedef = Short.toUnsignedInt(segs.getShort(firstseg * 12 + 6));
+		int side = segs.getShort(firstseg * 12 + 8);
+		return mapSidedefs[mapLinedefs[linedef][2 + side]];
+	}
+
+	/**
+	 * Add the linedefs of a platform, or of the room when the sector is 0. The
+	 * corners go clockwise, so the front side of every linedef faces the inside.
+	 */
+	private static void addPolygon(List<short[]> vertexes, List<short[]> linedefs, int sector, int[][] corners) {
+		int first = vertexes.size();
+		for (int[] corner : corners) {
+			vertexes.add(new short[] { (short) corner[0], (short) corner[1] });
+		}
+		for (int i = 0; i < corners.length; i++) {
+			short v1 = (short) (first + i);
+			short v2 = (short) (first + (i + 1) % corners.length);
+			linedefs.add(new short[] { v1, v2, (short) sector, sector == 0 ? NO_INDEX : 0 });
+		}
+	}
+
+	private static WadFile createWadFile(short[][] mapVertexes, short[][] mapLinedefs, short[] mapSidedefs) {
+		ByteBuffer vertexes = newByteBuffer(mapVertexes.length * 4);
+		for (short[] vertex : mapVertexes) {
+			vertexes.putShort(vertex[0]);
+			vertexes.putShort(vertex[1]);
+		}
+
+		ByteBuffer linedefs = newByteBuffer(mapLinedefs.length * 14);
+		for (short[] linedef : mapLinedefs) {
+			linedefs.putShort(linedef[0]);
+			linedefs.putShort(linedef[1]);
+			linedefs.putShort((short) (linedef[3] == NO_INDEX ? 1 : 4)); // flags
+			linedefs.putShort((short) 0); // special
+			linedefs.putShort((short) 0); // tag
+			linedefs.putShort(linedef[2]);
+			linedefs.putShort(linedef[3]);
+		}
+
+		ByteBuffer sidedefs = newByteBuffer(mapSidedefs.length * 30);
+		for (short sector : mapSidedefs) {
+			sidedefs.position(sidedefs.position() + 28);
+			sidedefs.putShort(sector);
+		}
+
+		List<Lump> lumps = new ArrayList<>();
+		lumps.add(new Lump("E1M1", new byte[0], ByteOrder.LITTLE_ENDIAN));
+		lumps.add(new Lump("THINGS", new byte[0], ByteOrder.LITTLE_ENDIAN));
+		lumps.add(new Lump("LINEDEFS", linedefs.array(), ByteOrder.LITTLE_ENDIAN));
+		lumps.add(new Lump("SIDEDEFS", sidedefs.array(), ByteOrder.LITTLE_ENDIAN));
+		lumps.add(new Lump("VERTEXES", vertexes.array(), ByteOrder.LITTLE_ENDIAN));
+		lumps.add(new Lump("SEGS", new byte[0], ByteOrder.LITTLE_ENDIAN));
+		lumps.add(new Lump("SSECTORS", new byte[0], ByteOrder.LITTLE_ENDIAN));
+		lumps.add(new Lump("NODES", new byte[0], ByteOrder.LITTLE_ENDIAN));
+		lumps.add(new Lump("SECTORS", new byte[mapSidedefs.length * 26], ByteOrder.LITTLE_ENDIAN));
+		lumps.add(new Lump("REJECT", new byte[0], ByteOrder.LITTLE_ENDIAN));
+		lumps.add(new Lump("BLOCKMAP", new byte[0], ByteOrder.LITTLE_ENDIAN));
+		return new WadFile(lumps);
+	}
+
+	private static ByteBuffer newByteBuffer(int capacity) {
+		return ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+}
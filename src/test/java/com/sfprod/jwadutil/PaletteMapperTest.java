@@ -0,0 +1,44 @@
+package com.sfprod.jwadutil;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class tests {@link PaletteMapper}
+ *
+ */
+class PaletteMapperTest {
+
+	@Test
+	void apply() {
+		PaletteMapper paletteMapper = PaletteMapper.of(IntStream.range(0, 256).map(i -> 255 - i).toArray());
+
+		byte[] data = { 0, 1, 2, (byte) 0xff, (byte) 0x80 };
+		paletteMapper.apply(data, 1, 4);
+		assertArrayEquals(new byte[] { 0, (byte) 0xfe, (byte) 0xfd, 0, (byte) 0x80 }, data);
+		assertEquals((byte) 0x7f, paletteMapper.apply((byte) 0x80));
+	}
+
+	@Test
+	void unmappedColors() {
+		PaletteMapper paletteMapper = PaletteMapper.of(IntStream.range(0, 256).map(i -> i < 128 ? i : -1).toArray())
+				.map(i -> i << 1);
+
+		byte[] data = { 1, 2, 3 };
+		paletteMapper.apply(data, 0, data.length);
+		assertArrayEquals(new byte[] { 2, 4, 6 }, data);
+		assertThrows(IllegalArgumentException.class, () -> paletteMapper.apply(new byte[] { 1, (byte) 0x80 }, 0, 2));
+	}
+
+	@Test
+	void wrongSize() {
+		assertThrows(IllegalArgumentException.class, () -> PaletteMapper.of(new int[255]));
+		assertThrows(IllegalArgumentException.class, () -> PaletteMapper.of(new int[256]).map(i -> 256));
+	}
+
+}
@@ -0,0 +1,116 @@
+package com.sfprod.jwadutil;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class tests {@link Picture}
+ *
+ */
+class PictureTest {
+
+	private static final byte PADDING = 0x55;
+
+	// A column with two posts, an empty column and a column with one post
+	private static final byte[][] COLUMNS = { //
+			{ 0, 2, PADDING, 10, 11, PADDING, 5, 1, PADDING, 12, PADDING, -1 }, //
+			{ -1 }, //
+			{ 3, 4, PADDING, 13, 14, 15, 16, PADDING, -1 } };
+
+	@Test
+	void read() {
+		Picture picture = Picture.read(createLump(ByteOrder.BIG_ENDIAN));
+
+		assertEquals(3, picture.width());
+		assertEquals(8, picture.height());
+		assertEquals(-1, picture.leftoffset());
+		assertEquals(7, picture.topoffset());
+		assertEquals(Picture.HEADER_SIZE + 3 * 4, picture.columnof(0));
+		for (int column = 0; column < COLUMNS.length; column++) {
+			assertEquals(COLUMNS[column].length, picture.columnLength(column));
+		}
+
+		List<String> posts = new ArrayList<>();
+		byte[] data = picture.data();
+		picture.forEachPost(0, (topdelta, offset, length) -> {
+			assertEquals(PADDING, data[offset - 1]);
+			assertEquals(PADDING, data[offset + length]);
+			posts.add(topdelta + ":" + data[offset] + "+" + length);
+		});
+		picture.forEachPost(1, (topdelta, offset, length) -> posts.add("empty column"));
+		assertEquals(List.of("0:10+2", "5:12+1"), posts);
+	}
+
+	@Test
+	void readAndCopy() {
+		Lump lump = createLump(ByteOrder.LITTLE_ENDIAN);
+
+		Picture copy = Picture.copyOf(lump);
+		copy.data()[copy.columnof(0) + 3] = 20;
+		assertEquals(10, lump.data()[copy.columnof(0) + 3]);
+
+		Picture picture = Picture.read(lump);
+		picture.data()[picture.columnof(0) + 3] = 20;
+		assertEquals(20, lump.data()[picture.columnof(0) + 3]);
+	}
+
+	@Test
+	void putColumns() {
+		for (ByteOrder byteOrder : List.of(ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN)) {
+			Lump lump = createLump(byteOrder);
+			Picture picture = Picture.read(lump);
+
+			ByteBuffer byteBuffer = ByteBuffer.allocate(lump.length()).order(byteOrder);
+			picture.putHeader(byteBuffer);
+			int[] columnofs = new int[picture.width()];
+			for (int column = picture.width() - 1; column >= 0; column--) {
+				columnofs[column] = byteBuffer.position();
+				picture.putColumn(byteBuffer, column);
+			}
+			Picture.putColumnofs(byteBuffer, columnofs);
+
+			Picture newPicture = Picture.read(new Lump("TROOA1", byteBuffer.array(), byteOrder));
+			assertEquals(picture.width(), newPicture.width());
+			assertEquals(picture.height(), newPicture.height());
+			assertEquals(picture.leftoffset(), newPicture.leftoffset());
+			assertEquals(picture.topoffset(), newPicture.topoffset());
+			for (int column = 0; column < COLUMNS.length; column++) {
+				int columnof = newPicture.columnof(column);
+				assertEquals(columnofs[column], columnof);
+				byte[] columnData = new byte[newPicture.columnLength(column)];
+				System.arraycopy(newPicture.data(), columnof, columnData, 0, columnData.length);
+				assertArrayEquals(COLUMNS[column], columnData);
+			}
+		}
+	}
+
+	private static Lump createLump(ByteOrder byteOrder) {
+		int size = Picture.HEADER_SIZE + COLUMNS.length * 4;
+		for (byte[] column : COLUMNS) {
+			size += column.length;
+		}
+
+		ByteBuffer byteBuffer = ByteBuffer.allocate(size).order(byteOrder);
+		byteBuffer.putShort((short) COLUMNS.length);
+		byteBuffer.putShort((short) 8);
+		byteBuffer.putShort((short) -1);
+		byteBuffer.putShort((short) 7);
+		int columnof = Picture.HEADER_SIZE + COLUMNS.length * 4;
+		for (byte[] column : COLUMNS) {
+			byteBuffer.putInt(columnof);
+			columnof += column.length;
+		}
+		for (byte[] column : COLUMNS) {
+			byteBuffer.put(column);
+		}
+		return new Lump("TROOA1", byteBuffer.array(), byteOrder);
+	}
+
+}
@@ -0,0 +1,31 @@
+package com.sfprod.jwadutil;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class tests {@link PixelPacking}
+ *
+ */
+class PixelPackingTest {
+
+	private static final byte[] PIXELS = { 0, 1, 2, 3, 4, 5, 6, 7 };
+
+	@Test
+	void pack() {
+		assertArrayEquals(PIXELS, PixelPacking.CHUNKY.pack(PIXELS));
+		assertArrayEquals(new byte[] { 0b00_01_10_11, 0b00_01_10_11 },
+				PixelPacking.TWO_BITS.pack(new byte[] { 0, 1, 2, 3, 0, 1, 2, 3 }));
+		assertArrayEquals(new byte[] { 0x01, 0x23, 0x45, 0x67 }, PixelPacking.FOUR_BITS.pack(PIXELS));
+		assertArrayEquals(new byte[] { 0b00_00_00_00, 0b00_01_10_11, (byte) 0b10_10_10_10, 0b00_01_10_11 },
+				PixelPacking.SINCLAIR_QL_MODE_8.pack(PIXELS));
+	}
+
+	@Test
+	void wrongSize() {
+		assertThrows(IllegalArgumentException.class, () -> PixelPacking.TWO_BITS.pack(new byte[6]));
+	}
+
+}
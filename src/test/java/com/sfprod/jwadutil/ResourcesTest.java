@@ -0,0 +1,56 @@
+package com.sfprod.jwadutil;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class tests {@link Resources}
+ *
+ */
+class ResourcesTest {
+
+	@Test
+	void getDecodedResource() {
+		AtomicInteger decodeCount = new AtomicInteger();
+		Resources.Decoder<String> decoder = inputStream -> {
+			decodeCount.incrementAndGet();
+			return new String(inputStream.readAllBytes());
+		};
+
+		String decoded = Resources.getDecodedResource("/M_GAMMA.LMP", String.class, "test", decoder);
+		assertSame(decoded, Resources.getDecodedResource("/M_GAMMA.LMP", String.class, "test", decoder));
+		assertEquals(1, decodeCount.get());
+
+		Resources.getDecodedResource("/M_GAMMA.LMP", String.class, "other test", decoder);
+		assertEquals(2, decodeCount.get());
+	}
+
+	@Test
+	void getResourceAsBytes() {
+		byte[] bytes = Resources.getResourceAsBytes("/M_ARUN.LMP");
+		byte[] otherBytes = Resources.getResourceAsBytes("/M_ARUN.LMP");
+		assertNotSame(bytes, otherBytes);
+		assertArrayEquals(bytes, otherBytes);
+	}
+
+	@Test
+	void recordCachedResources() {
+		Resources.getResourceAsBytes("/CACHE.LMP");
+		Set<String> usedResources = Resources.record(() -> Resources.getResourceAsBytes("/CACHE.LMP"));
+		assertEquals(Set.of("/CACHE.LMP"), usedResources);
+	}
+
+	@Test
+	void recordUse() {
+		Set<String> usedResources = Resources.record(() -> Resources.recordUse("/ZENNODE.EXE"));
+		assertEquals(Set.of("/ZENNODE.EXE"), usedResources);
+	}
+
+}
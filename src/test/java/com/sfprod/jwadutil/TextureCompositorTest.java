@@ -0,0 +1,259 @@
+package com.sfprod.jwadutil;
+
+import static com.sfprod.utils.StringUtils.toByteArray;
+import static com.sfprod.utils.StringUtils.toStringUpperCase;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.sfprod.jwadutil.pc.WadProcessor256ColorsPC;
+
+/**
+ * This class tests {@link TextureCompositor}
+ *
+ */
+class TextureCompositorTest {
+
+	private static final ByteOrder BYTE_ORDER = ByteOrder.BIG_ENDIAN;
+
+	@Test
+	void composeTextures() {
+		WadFile wadFile = new WadFile(List.of( //
+				pnames("PATCHA", "PATCHB", "PATCHC"), //
+				texture1(new short[][] { { 4, 2, 0, 0, 0, 2, 0, 1 }, // PATCHA and PATCHB side by side
+						{ 2, 2, 0, 0, 0 }, // PATCHA only
+						{ 4, 2, 0, 0, 0, 2, 0, 1 }, // the same as the first texture
+						{ 2, 2, 0, 1, 2, 1, 1, 1 } }), // PATCHC and PATCHB shifted down, leave a hole
+				marker("P1_START"), //
+				patch("PATCHA", 1, 2), //
+				patch("PATCHB", 3, 4), //
+				patch("PATCHC", 5, 6), //
+				marker("P1_END")));
+
+		new TextureCompositor(BYTE_ORDER, wadFile).composeTextures();
+
+		ByteBuffer pnames = wadFile.getLumpByName("PNAMES").dataAsByteBuffer();
+		assertEquals(4, pnames.getInt());
+		byte[] name = new byte[8];
+		pnames.position(4 + 3 * 8);
+		pnames.get(name);
+		String composedName = toStringUpperCase(name);
+
+		ByteBuffer texture1 = wadFile.getLumpByName("TEXTURE1").dataAsByteBuffer();
+		assertEquals(List.of(3), patchesOfTexture(texture1, 0));
+		assertEquals(List.of(0), patchesOfTexture(texture1, 1));
+		assertEquals(List.of(3), patchesOfTexture(texture1, 2));
+		assertEquals(List.of(2, 1), patchesOfTexture(texture1, 3));
+
+		// PATCHB is still used by the texture with a hole
+		List<String> p1 = wadFile.getLumpsBetween("P1_START", "P1_END").stream().map(Lump::nameAsString).toList();
+		assertEquals(List.of("PATCHA", "PATCHB", "PATCHC", composedName), p1);
+
+		Picture composed = Picture.read(wadFile.getLumpByName(composedName));
+		assertEquals(4, composed.width());
+		assertEquals(2, composed.height());
+		byte[] pixels = new byte[4 * 2];
+		for (int x = 0; x < 4; x++) {
+			int column = x;
+			composed.forEachPost(x, (topdelta, offset, length) -> {
+				assertEquals(0, topdelta);
+				assertEquals(2, length);
+				System.arraycopy(composed.data(), offset, pixels, column * 2, length);
+			});
+		}
+		assertArrayEquals(new byte[] { 1, 1, 2, 2, 3, 3, 4, 4 }, pixels);
+	}
+
+	@Test
+	void removeUnusedPatches() {
+		WadFile wadFile = new WadFile(List.of( //
+				pnames("PATCHA", "PATCHB"), //
+				texture1(new short[][] { { 2, 2, 0, 0, 0, 1, 0, 1 } }), //
+				marker("P1_START"), //
+				patch("PATCHA", 1, 2), //
+				patch("PATCHB", 3, 4), //
+				marker("P1_END")));
+
+		new TextureCompositor(BYTE_ORDER, wadFile).composeTextures();
+
+		List<Lump> p1 = wadFile.getLumpsBetween("P1_START", "P1_END");
+		assertEquals(1, p1.size());
+		assertTrue(p1.getFirst().nameAsString().startsWith("CTEX"));
+
+		ByteBuffer pnames = wadFile.getLumpByName("PNAMES").dataAsByteBuffer();
+		assertEquals(1, pnames.getInt());
+		byte[] name = new byte[8];
+		pnames.get(name);
+		assertEquals(p1.getFirst().nameAsString(), toStringUpperCase(name));
+
+		ByteBuffer texture1 = wadFile.getLumpByName("TEXTURE1").dataAsByteBuffer();
+		assertEquals(List.of(0), patchesOfTexture(texture1, 0));
+	}
+
+	@Test
+	void renumberPatches() {
+		WadFile wadFile = new WadFile(List.of( //
+				pnames("PATCHA", "PATCHB", "PATCHC"), //
+				texture1(new short[][] { { 2, 2, 0, 0, 0, 1, 0, 1 }, // PATCHA and PATCHB on top of each other
+						{ 2, 2, 0, 0, 2 } }), // PATCHC only
+				marker("P1_START"), //
+				patch("PATCHA", 1, 2), //
+				patch("PATCHB", 3, 4), //
+				patch("PATCHC", 5, 6), //
+				marker("P1_END")));
+
+		new TextureCompositor(BYTE_ORDER, wadFile).composeTextures();
+
+		ByteBuffer pnames = wadFile.getLumpByName("PNAMES").dataAsByteBuffer();
+		assertEquals(2, pnames.getInt());
+		byte[] name = new byte[8];
+		pnames.get(name);
+		assertEquals("PATCHC", toStringUpperCase(name));
+
+		ByteBuffer texture1 = wadFile.getLumpByName("TEXTURE1").dataAsByteBuffer();
+		assertEquals(List.of(1), patchesOfTexture(texture1, 0));
+		assertEquals(List.of(0), patchesOfTexture(texture1, 1));
+
+		List<String> p1 = wadFile.getLumpsBetween("P1_START", "P1_END").stream().map(Lump::nameAsString).toList();
+		pnames.get(name);
+		assertEquals(List.of("PATCHC", toStringUpperCase(name)), p1);
+	}
+
+	@Test
+	void keepSwitchesOfTwoColorTextMode() {
+		WadFile wadFile = createWadFileWithSwitch();
+		WadProcessor wadProcessor = WadProcessorFactory.getWadProcessor(Game.DOOM8088_2_COLOR_TEXT_MODE, wadFile);
+
+		new TextureCompositor(BYTE_ORDER, wadFile, wadProcessor::isProcessedByName).composeTextures();
+
+		assertEquals(2, wadFile.getLumpByName("PNAMES").dataAsByteBuffer().getInt());
+		ByteBuffer texture1 = wadFile.getLumpByName("TEXTURE1").dataAsByteBuffer();
+		assertEquals(List.of(0, 1), patchesOfTexture(texture1, 0));
+
+		// The switch gets the colors of the sprites, the other patch those of the
+		// walls
+		Lump startan3 = wadFile.getLumpByName("STARTAN3");
+		Lump sw1s0 = wadFile.getLumpByName("SW1S0");
+		Picture startan3Wall = Picture.copyOf(startan3);
+		Picture sw1s0Wall = Picture.copyOf(sw1s0);
+		Picture sw1s0Sprite = Picture.copyOf(sw1s0);
+		wadProcessor.changePaletteWall(startan3, startan3Wall);
+		wadProcessor.changePaletteWall(sw1s0, sw1s0Wall);
+		wadProcessor.changePaletteSprite(sw1s0, sw1s0Sprite);
+		assertArrayEquals(sw1s0Sprite.data(), sw1s0Wall.data());
+		assertFalse(Arrays.equals(startan3Wall.data(), sw1s0Wall.data()));
+	}
+
+	@Test
+	void keepPatchesWithColumnDecimationFactor() {
+		WadFile wadFile = createWadFileWithSwitch();
+		WadProcessor wadProcessor = new WadProcessor256ColorsPC("Doom8088", ByteOrder.LITTLE_ENDIAN, wadFile,
+				ColumnDecimation.DEFAULT.withPrefix("SW1", 1));
+		assertTrue(wadProcessor.isProcessedByName("SW1S0"));
+		assertFalse(wadProcessor.isProcessedByName("STARTAN3"));
+
+		new TextureCompositor(BYTE_ORDER, wadFile, wadProcessor::isProcessedByName).composeTextures();
+
+		ByteBuffer texture1 = wadFile.getLumpByName("TEXTURE1").dataAsByteBuffer();
+		assertEquals(List.of(0, 1), patchesOfTexture(texture1, 0));
+	}
+
+	/**
+	 * A WAD file with a texture of a switch next to another patch, and the lumps
+	 * a WadProcessor needs
+	 */
+	private static WadFile createWadFileWithSwitch() {
+		byte[] playpal = new byte[256 * 3];
+		for (int i = 0; i < playpal.length; i++) {
+			playpal[i] = (byte) (i / 3);
+		}
+
+		return new WadFile(new ArrayList<>(List.of( //
+				new Lump("PLAYPAL", playpal, ByteOrder.LITTLE_ENDIAN), //
+				marker("HELP2"), //
+				marker("STBAR"), //
+				marker("TITLEPIC"), //
+				marker("WIMAP0"), //
+				pnames("STARTAN3", "SW1S0"), //
+				texture1(new short[][] { { 4, 2, 0, 0, 0, 2, 0, 1 } }), //
+				marker("P1_START"), //
+				patch("STARTAN3", 3, 3), //
+				patch("SW1S0", 3, 3), //
+				marker("P1_END"))));
+	}
+
+	private static List<Integer> patchesOfTexture(ByteBuffer texture1, int texture) {
+		texture1.position(texture1.getInt(4 + texture * 4) + 8 + 2 + 2);
+		short patchcount = texture1.getShort();
+		List<Integer> patches = new ArrayList<>();
+		for (int i = 0; i < patchcount; i++) {
+			texture1.getShort(); // originx
+			texture1.getShort(); // originy
+			patches.add((int) texture1.getShort());
+		}
+		return patches;
+	}
+
+	private static Lump marker(String name) {
+		return new Lump(name, new byte[0], BYTE_ORDER);
+	}
+
+	private static Lump pnames(String... names) {
+		ByteBuffer byteBuffer = ByteBuffer.allocate(4 + names.length * 8).order(BYTE_ORDER);
+		byteBuffer.putInt(names.length);
+		for (String name : names) {
+			byteBuffer.put(toByteArray(name, 8));
+		}
+		return new Lump(toByteArray("PNAMES", 8), byteBuffer);
+	}
+
+	/**
+	 * @param textures width, height and originx, originy and patch of every patch
+	 * @return
+	 */
+	private static Lump texture1(short[][] textures) {
+		ByteBuffer byteBuffer = ByteBuffer.allocate(1024).order(BYTE_ORDER);
+		byteBuffer.putInt(textures.length);
+		byteBuffer.position(4 + textures.length * 4);
+		for (int i = 0; i < textures.length; i++) {
+			byteBuffer.putInt(4 + i * 4, byteBuffer.position());
+			short[] texture = textures[i];
+			byteBuffer.put(toByteArray("TEXTURE" + i, 8));
+			byteBuffer.putShort(texture[0]);
+			byteBuffer.putShort(texture[1]);
+			byteBuffer.putShort((short) ((texture.length - 2) / 3));
+			for (int j = 2; j < texture.length; j++) {
+				byteBuffer.putShort(texture[j]);
+			}
+		}
+		return new Lump(toByteArray("TEXTURE1", 8), byteBuffer.position(), byteBuffer);
+	}
+
+	/**
+	 * A patch of 2 by 2 pixels
+	 */
+	private static Lump patch(String name, int leftColor, int rightColor) {
+		ByteBuffer byteBuffer = ByteBuffer.allocate(Picture.HEADER_SIZE + 2 * 4 + 2 * 7)
+				.order(ByteOrder.LITTLE_ENDIAN);
+		byteBuffer.putShort((short) 2);
+		byteBuffer.putShort((short) 2);
+		byteBuffer.putShort((short) 0);
+		byteBuffer.putShort((short) 0);
+		byteBuffer.putInt(Picture.HEADER_SIZE + 2 * 4);
+		byteBuffer.putInt(Picture.HEADER_SIZE + 2 * 4 + 7);
+		for (int color : new int[] { leftColor, rightColor }) {
+			byteBuffer.put(new byte[] { 0, 2, (byte) color, (byte) color, (byte) color, (byte) color, -1 });
+		}
+		return new Lump(toByteArray(name, 8), byteBuffer);
+	}
+
+}
@@ -0,0 +1,44 @@
+package com.sfprod.jwadutil;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class tests {@link ThreadBufferedOutputStream}
+ *
+ */
+class ThreadBufferedOutputStreamTest {
+
+	@Test
+	void capture() {
+		ByteArrayOutputStream console = new ByteArrayOutputStream();
+		ThreadBufferedOutputStream threadBufferedOutputStream = new ThreadBufferedOutputStream(console);
+		PrintStream printStream = new PrintStream(threadBufferedOutputStream, true, StandardCharsets.US_ASCII);
+
+		List<CompletableFuture<byte[]>> outputs = IntStream.range(0, 8)
+				.mapToObj(thread -> CompletableFuture.supplyAsync(() -> threadBufferedOutputStream.capture(() -> {
+					for (int line = 0; line < 100; line++) {
+						printStream.println(thread + ":" + line);
+					}
+				}))).toList();
+		printStream.println("direct");
+
+		for (int thread = 0; thread < outputs.size(); thread++) {
+			StringBuilder expected = new StringBuilder();
+			for (int line = 0; line < 100; line++) {
+				expected.append(thread + ":" + line + System.lineSeparator());
+			}
+			assertEquals(expected.toString(), new String(outputs.get(thread).join(), StandardCharsets.US_ASCII));
+		}
+		assertEquals("direct" + System.lineSeparator(), console.toString(StandardCharsets.US_ASCII));
+	}
+
+}
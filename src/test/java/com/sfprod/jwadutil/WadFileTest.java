@@ -0,0 +1,213 @@
+package com.sfprod.jwadutil;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class tests {@link WadFile}
+ *
+ */
+class WadFileTest {
+
+	@Test
+	void addLump() {
+		WadFile wadFile = createWadFile("S_START", "TROOA1", "S_END");
+
+		Lump lump = createLump("TROOB1");
+		wadFile.addLump(2, lump);
+		wadFile.addLump(createLump("ENDOOM"));
+
+		assertEquals(List.of("TROOA1", "TROOB1"), names(wadFile.getLumpsBetween("S_START", "S_END")));
+		assertEquals(2, wadFile.getLumpNumByName("TROOB1"));
+		assertEquals(3, wadFile.getLumpNumByName("S_END"));
+		assertEquals(4, wadFile.getLumpNumByName("ENDOOM"));
+		assertSame(lump, wadFile.getLumpByName("trooB1"));
+	}
+
+	@Test
+	void replaceLump() {
+		WadFile wadFile = createWadFile("PLAYPAL", "COLORMAP", "ENDOOM");
+
+		Lump lump = createLump("COLORMAP");
+		wadFile.replaceLump(lump);
+		assertSame(lump, wadFile.getLumpByNum(1));
+		assertSame(lump, wadFile.getLumpByName("COLORMAP"));
+
+		Lump renamedLump = createLump("GENMIDI");
+		wadFile.replaceLump(1, renamedLump);
+		assertEquals(1, wadFile.getLumpNumByName("GENMIDI"));
+		assertThrows(IllegalArgumentException.class, () -> wadFile.getLumpByName("COLORMAP"));
+	}
+
+	@Test
+	void removeLump() {
+		WadFile wadFile = createWadFile("PLAYPAL", "DSPISTOL", "COLORMAP", "DSSHOTGN", "ENDOOM");
+
+		wadFile.removeLump("PLAYPAL");
+		assertEquals(1, wadFile.getLumpNumByName("COLORMAP"));
+		assertEquals(3, wadFile.getLumpNumByName("ENDOOM"));
+
+		wadFile.removeLumps("DS");
+		assertEquals(0, wadFile.getLumpNumByName("COLORMAP"));
+		assertEquals(1, wadFile.getLumpNumByName("ENDOOM"));
+		assertEquals(List.of(), wadFile.getLumpsByName("DS"));
+		assertThrows(IllegalArgumentException.class, () -> wadFile.removeLump("DSPISTOL"));
+	}
+
+	@Test
+	void getLumpsByName() {
+		WadFile wadFile = createWadFile("STFB1", "STBAR", "STFB0", "STARMS", "M_DOOM", "STFB3");
+
+		assertEquals(List.of("STFB1", "STFB0", "STFB3"), names(wadFile.getLumpsByName("STFB")));
+		assertEquals(List.of("STFB1", "STBAR", "STFB0", "STARMS", "STFB3"), names(wadFile.getLumpsByName("ST")));
+	}
+
+	@Test
+	void getLumpsBetween() {
+		WadFile wadFile = createWadFile("P1_START", "WALL00_1", "P1_END");
+
+		List<Lump> lumps = wadFile.getLumpsBetween("P1_START", "P1_END");
+		wadFile.removeLump("WALL00_1");
+
+		assertEquals(List.of("WALL00_1"), names(lumps));
+		assertThrows(UnsupportedOperationException.class, () -> lumps.clear());
+	}
+
+	@Test
+	void writeWadFile() throws IOException {
+		List<Lump> lumps = new ArrayList<>();
+		lumps.add(new Lump("PLAYPAL", new byte[] { 1, 2, 3, 4, 5 }, ByteOrder.BIG_ENDIAN));
+		lumps.add(new Lump("S_START", new byte[0], ByteOrder.BIG_ENDIAN));
+		lumps.add(new Lump("TROOA1", new byte[] { 6, 7, 8 }, ByteOrder.BIG_ENDIAN));
+		lumps.add(new Lump("TROOA2", new byte[] { 1, 2, 3, 4, 5 }, ByteOrder.BIG_ENDIAN));
+		lumps.add(new Lump("S_END", new byte[0], ByteOrder.BIG_ENDIAN));
+		lumps.add(new Lump("ENDOOM", new byte[] { 9 }, ByteOrder.BIG_ENDIAN));
+		byte[] expected = saveWadFile(lumps, ByteOrder.BIG_ENDIAN);
+
+		for (TrickleChannel channel : List.of(new TrickleChannel(), new GatheringTrickleChannel())) {
+			long filesize = new WadFile(lumps).writeWadFile(ByteOrder.BIG_ENDIAN, channel, false);
+			assertEquals(expected.length, filesize);
+			assertArrayEquals(expected, channel.toByteArray());
+		}
+	}
+
+	/**
+	 * The layout of the WAD file that saveWadFile used to write in one piece:
+	 * the header, the directory and the data of the lumps without duplicates
+	 */
+	private static byte[] saveWadFile(List<Lump> lumps, ByteOrder byteOrder) {
+		int filepos = 4 + 4 + 4 + lumps.size() * (4 + 4 + 8);
+		ByteBuffer directory = ByteBuffer.allocate(filepos).order(byteOrder);
+		directory.put("IWAD".getBytes());
+		directory.putShort((short) lumps.size());
+		directory.putShort((short) 0);
+		directory.putInt(4 + 4 + 4);
+
+		ByteArrayOutputStream data = new ByteArrayOutputStream();
+		Map<ByteBuffer, Integer> filepositions = new HashMap<>();
+		for (Lump lump : lumps) {
+			if (lump.length() == 0) {
+				directory.putInt(0);
+			} else {
+				Integer previousFilepos = filepositions.putIfAbsent(ByteBuffer.wrap(lump.data()), filepos);
+				if (previousFilepos == null) {
+					directory.putInt(filepos);
+					data.writeBytes(lump.data());
+					filepos += lump.length();
+				} else {
+					directory.putInt(previousFilepos);
+				}
+			}
+			directory.putShort((short) lump.length());
+			directory.putShort((short) 0);
+			directory.put(lump.name());
+		}
+
+		ByteArrayOutputStream wadFile = new ByteArrayOutputStream();
+		wadFile.writeBytes(directory.array());
+		wadFile.writeBytes(data.toByteArray());
+		return wadFile.toByteArray();
+	}
+
+	/**
+	 * A channel that accepts at most 3 bytes per call
+	 */
+	private static class TrickleChannel implements WritableByteChannel {
+
+		private static final int MAX_BYTES = 3;
+
+		private final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+		@Override
+		public int write(ByteBuffer src) {
+			int count = Math.min(src.remaining(), MAX_BYTES);
+			for (int i = 0; i < count; i++) {
+				outputStream.write(src.get());
+			}
+			return count;
+		}
+
+		@Override
+		public boolean isOpen() {
+			return true;
+		}
+
+		@Override
+		public void close() {
+		}
+
+		byte[] toByteArray() {
+			return outputStream.toByteArray();
+		}
+	}
+
+	private static class GatheringTrickleChannel extends TrickleChannel implements GatheringByteChannel {
+
+		@Override
+		public long write(ByteBuffer[] srcs, int offset, int length) {
+			for (int i = offset; i < offset + length; i++) {
+				if (srcs[i].hasRemaining()) {
+					return write(srcs[i]);
+				}
+			}
+			return 0;
+		}
+
+		@Override
+		public long write(ByteBuffer[] srcs) {
+			return write(srcs, 0, srcs.length);
+		}
+	}
+
+	private static WadFile createWadFile(String... names) {
+		List<Lump> lumps = new ArrayList<>();
+		for (String name : names) {
+			lumps.add(createLump(name));
+		}
+		return new WadFile(lumps);
+	}
+
+	private static Lump createLump(String name) {
+		return new Lump(name, new byte[] { 1, 2, 3 }, ByteOrder.LITTLE_ENDIAN);
+	}
+
+	private static List<String> names(List<Lump> lumps) {
+		return lumps.stream().map(Lump::nameAsString).toList();
+	}
+
+}
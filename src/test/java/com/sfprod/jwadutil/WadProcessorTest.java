@@ -1,14 +1,19 @@
 package com.sfprod.jwadutil;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
 
@@ -18,6 +23,10 @@ import org.junit.jupiter.params.provider.ValueSource;
  */
 class WadProcessorTest {
 
+	private static final byte[] COLUMN_A = { 0, 2, 0, 10, 11, 0, -1 };
+	private static final byte[] COLUMN_B = { 1, 1, 0, 12, 0, -1 };
+	private static final byte[] COLUMN_C = { 0, 1, 0, 13, 0, 4, 1, 0, 14, 0, -1 };
+
 	@ParameterizedTest
 	@ValueSource(ints = { 1, 2, 3, 4, 5, 6, 7, 8, 9 })
 	void processBlockmap(int map) {
@@ -69,4 +78,102 @@ class WadProcessorTest {
 
 		return mapOfLinenos;
 	}
+
+	@Test
+	void poolColumns() {
+		List<Lump> lumps = new ArrayList<>();
+		lumps.add(createPicture("M_DOOM", COLUMN_C, COLUMN_A));
+		lumps.add(new Lump("S_START", new byte[0], ByteOrder.BIG_ENDIAN));
+		lumps.add(createPicture("TROOA1", COLUMN_A, COLUMN_B, COLUMN_A));
+		lumps.add(createPicture("TROOB1", COLUMN_B, COLUMN_C));
+		lumps.add(new Lump("S_END", new byte[0], ByteOrder.BIG_ENDIAN));
+		lumps.add(new Lump("P1_START", new byte[0], ByteOrder.BIG_ENDIAN));
+		lumps.add(createPicture("WALL00_1", COLUMN_A, COLUMN_A));
+		lumps.add(new Lump("P1_END", new byte[0], ByteOrder.BIG_ENDIAN));
+		WadFile wadFile = new WadFile(lumps);
+
+		WadProcessor.poolColumns(wadFile, ByteOrder.BIG_ENDIAN);
+
+		Lump columnPool = wadFile.getLumpByName("COLUMNS");
+		assertEquals(COLUMN_A.length + COLUMN_B.length + COLUMN_C.length, columnPool.length());
+
+		Map<String, Integer> columnofs = new HashMap<>();
+		for (String name : List.of("M_DOOM", "TROOA1", "TROOB1", "WALL00_1")) {
+			Lump lump = wadFile.getLumpByName(name);
+			Picture picture = Picture.read(lump, columnPool);
+			assertEquals(Picture.HEADER_SIZE + picture.width() * 4, lump.length());
+			for (int column = 0; column < picture.width(); column++) {
+				int columnof = picture.columnof(column);
+				byte[] columnData = Arrays.copyOfRange(columnPool.data(), columnof,
+						columnof + picture.columnLength(column));
+				Integer sharedColumnof = columnofs.putIfAbsent(Arrays.toString(columnData), columnof);
+				if (sharedColumnof != null) {
+					assertEquals(sharedColumnof, columnof);
+				}
+			}
+		}
+
+		Picture wall = Picture.read(wadFile.getLumpByName("WALL00_1"), columnPool);
+		assertArrayEquals(COLUMN_A,
+				Arrays.copyOfRange(columnPool.data(), wall.columnof(1), wall.columnof(1) + wall.columnLength(1)));
+		assertEquals(columnofs.get(Arrays.toString(COLUMN_A)), wall.columnof(0));
+		assertNotEquals(columnofs.get(Arrays.toString(COLUMN_B)), columnofs.get(Arrays.toString(COLUMN_C)));
+		assertEquals(3, columnofs.size());
+	}
+
+	@Test
+	void putSuffixes() {
+		byte[] suffix = Arrays.copyOfRange(COLUMN_C, 5, COLUMN_C.length);
+		Picture picture = Picture.read(createPicture("TROOA1", COLUMN_C, suffix, COLUMN_A));
+		ColumnDictionary persistedColumns = new ColumnDictionary(3);
+
+		assertEquals(-1, putIfAbsent(persistedColumns, picture, 0, 100));
+		WadProcessor.putSuffixes(picture, 0, 100, persistedColumns);
+
+		// The second column is the second post of the first column
+		assertEquals(105, putIfAbsent(persistedColumns, picture, 1, 200));
+		assertEquals(-1, putIfAbsent(persistedColumns, picture, 2, 200));
+	}
+
+	@Test
+	void removeMirroredSprites() {
+		List<Lump> lumps = new ArrayList<>();
+		lumps.add(new Lump("S_START", new byte[0], ByteOrder.BIG_ENDIAN));
+		lumps.add(createPicture("TROOA2", COLUMN_A, COLUMN_B));
+		lumps.add(createPicture("TROOA8", COLUMN_B, COLUMN_A));
+		lumps.add(createPicture("TROOB2", COLUMN_C, COLUMN_A));
+		lumps.add(createPicture("TROOB8", COLUMN_C, COLUMN_A));
+		lumps.add(new Lump("S_END", new byte[0], ByteOrder.BIG_ENDIAN));
+		WadFile wadFile = new WadFile(lumps);
+
+		WadProcessor.removeMirroredSprites(wadFile);
+
+		List<String> sprites = wadFile.getLumpsBetween("S_START", "S_END").stream().map(Lump::nameAsString).toList();
+		assertEquals(List.of("TROOA2A8", "TROOB2", "TROOB8"), sprites);
+		assertArrayEquals(lumps.get(1).data(), wadFile.getLumpByName("TROOA2A8").data());
+	}
+
+	private static int putIfAbsent(ColumnDictionary persistedColumns, Picture picture, int column, int columnof) {
+		return persistedColumns.putIfAbsent(picture.data(), picture.columnof(column), picture.columnLength(column),
+				columnof);
+	}
+
+	private static Lump createPicture(String name, byte[]... columns) {
+		ByteBuffer byteBuffer = ByteBuffer.allocate(Picture.HEADER_SIZE + columns.length * 4
+				+ Arrays.stream(columns).mapToInt(c -> c.length).sum());
+		byteBuffer.putShort((short) columns.length);
+		byteBuffer.putShort((short) 8);
+		byteBuffer.putShort((short) 0);
+		byteBuffer.putShort((short) 0);
+		int columnof = Picture.HEADER_SIZE + columns.length * 4;
+		for (byte[] column : columns) {
+			byteBuffer.putInt(columnof);
+			columnof += column.length;
+		}
+		for (byte[] column : columns) {
+			byteBuffer.put(column);
+		}
+		return new Lump(name, byteBuffer.array(), ByteOrder.BIG_ENDIAN);
+	}
+
 }
@@ -0,0 +1,37 @@
+package com.sfprod.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class tests {@link HashUtils}
+ *
+ */
+class HashUtilsTest {
+
+	@Test
+	void hash64() {
+		byte[] bytes = { 0x00, 0x01, 0x02, 0x03, 0x04, 0x05, 0x06, 0x07, 0x08, 0x09, 0x0a, 0x0b, 0x0c };
+
+		assertEquals(HashUtils.hash64(bytes), HashUtils.hash64(bytes.clone()));
+		assertEquals(HashUtils.hash64(bytes), HashUtils.hash64(ByteBuffer.wrap(bytes).order(ByteOrder.BIG_ENDIAN)));
+
+		ByteBuffer slice = ByteBuffer.wrap(new byte[] { 0x7f, 0x00, 0x01, 0x02 }).position(1);
+		assertEquals(HashUtils.hash64(new byte[] { 0x00, 0x01, 0x02 }), HashUtils.hash64(slice));
+		assertEquals(1, slice.position());
+
+		assertNotEquals(HashUtils.hash64(new byte[] {}), HashUtils.hash64(new byte[] { 0x00 }));
+		assertNotEquals(HashUtils.hash64(new byte[] { 0x00 }), HashUtils.hash64(new byte[] { 0x00, 0x00 }));
+		assertNotEquals(HashUtils.hash64(new byte[] { 0x01, 0x02 }), HashUtils.hash64(new byte[] { 0x02, 0x01 }));
+		for (int i = 0; i < bytes.length; i++) {
+			byte[] other = bytes.clone();
+			other[i] ^= 0x40;
+			assertNotEquals(HashUtils.hash64(bytes), HashUtils.hash64(other));
+		}
+	}
+}
@@ -0,0 +1,82 @@
+package com.sfprod.utils;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import com.sfprod.utils.PlanarUtils.Interleave;
+
+/**
+ * This class tests {@link PlanarUtils}
+ *
+ */
+class PlanarUtilsTest {
+
+	private final Random random = new Random(0x1d4a11);
+
+	@Test
+	void transpose8x8() {
+		assertEquals(0x8040201008040201L, PlanarUtils.transpose8x8(0x8040201008040201L));
+		assertEquals(0x00000000000000ffL, PlanarUtils.transpose8x8(0x0101010101010101L));
+		assertEquals(0xff00000000000000L, PlanarUtils.transpose8x8(0x8080808080808080L));
+	}
+
+	@Test
+	void toPlanarLine() {
+		for (int width : new int[] { 240, 64 }) {
+			byte[] chunky = randomPixels(width * 32);
+			assertArrayEquals(toPlanarSlow(chunky, width, 4, width / 8),
+					PlanarUtils.toPlanar(chunky, width, 32, 4, Interleave.LINE));
+		}
+	}
+
+	@Test
+	void toPlanarWord() {
+		byte[] chunky = randomPixels(240 * 32);
+		assertArrayEquals(toPlanarSlow(chunky, 240, 4, 2), PlanarUtils.toPlanar(chunky, 240, 32, 4, Interleave.WORD));
+		assertArrayEquals(toPlanarSlow(chunky, 240, 8, 2), PlanarUtils.toPlanar(chunky, 240, 32, 8, Interleave.WORD));
+		assertArrayEquals(toPlanarSlow(chunky, 240, 1, 2), PlanarUtils.toPlanar(chunky, 240, 32, 1, Interleave.WORD));
+	}
+
+	@Test
+	void wrongSize() {
+		assertThrows(IllegalArgumentException.class, () -> PlanarUtils.toPlanar(new byte[240 * 32], 240, 31, 4,
+				Interleave.LINE));
+		assertThrows(IllegalArgumentException.class, () -> PlanarUtils.toPlanar(new byte[8 * 2], 8, 2, 4,
+				Interleave.WORD));
+		assertThrows(IllegalArgumentException.class, () -> PlanarUtils.toPlanar(new byte[16], 16, 1, 9,
+				Interleave.WORD));
+	}
+
+	private byte[] randomPixels(int count) {
+		byte[] pixels = new byte[count];
+		random.nextBytes(pixels);
+		return pixels;
+	}
+
+	/**
+	 * One bit at a time
+	 */
+	private static byte[] toPlanarSlow(byte[] chunky, int width, int planes, int bytesPerPlane) {
+		byte[] planar = new byte[chunky.length / 8 * planes];
+		int groupSize = 8 * bytesPerPlane;
+		for (int group = 0; group < chunky.length / groupSize; group++) {
+			for (int plane = 0; plane < planes; plane++) {
+				for (int i = 0; i < bytesPerPlane; i++) {
+					int b = 0;
+					for (int x = 0; x < 8; x++) {
+						int bitValue = (chunky[group * groupSize + i * 8 + x] >> plane) & 1;
+						b |= bitValue << (7 - x);
+					}
+					planar[(group * planes + plane) * bytesPerPlane + i] = (byte) b;
+				}
+			}
+		}
+		return planar;
+	}
+
+}